@@ -1,11 +1,24 @@
 package co.caio.casserole;
 
+import co.caio.casserole.component.StaticRecipePages;
 import co.caio.casserole.config.SearchConfigurationProperties;
+import co.caio.casserole.ext.CategoryFilterCachingPolicy;
+import co.caio.casserole.ext.LongKeyedCache;
+import co.caio.casserole.ext.LongKeyedCacheMetrics;
+import co.caio.casserole.ext.QueryCacheMetrics;
+import co.caio.casserole.ext.RenderedPage;
+import co.caio.casserole.index.ContentVersion;
+import co.caio.casserole.index.DatabaseId;
+import co.caio.casserole.index.KnownRecipeIds;
+import co.caio.casserole.index.MaterializedResults;
+import co.caio.casserole.index.SimilarSummaries;
+import co.caio.cerberus.db.RecipeMetadata;
 import co.caio.cerberus.db.RecipeMetadataDatabase;
 import co.caio.cerberus.db.SimpleRecipeMetadataDatabase;
 import co.caio.cerberus.model.SearchQuery;
 import co.caio.cerberus.model.SearchResult;
 import co.caio.cerberus.search.Searcher;
+import co.caio.tablier.model.RecipeInfo.SimilarInfo;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
@@ -14,12 +27,18 @@ import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.lucene.search.LRUQueryCache;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.actuate.autoconfigure.metrics.MeterRegistryCustomizer;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.DependsOn;
+import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
 
 @SpringBootApplication
@@ -39,11 +58,51 @@ public class BootApplication {
   }
 
   @Bean
+  KnownRecipeIds knownRecipeIds(SearchConfigurationProperties conf) {
+    return KnownRecipeIds.load(conf.getSdb().getDirectory());
+  }
+
+  @Bean
+  SimilarSummaries similarSummaries(SearchConfigurationProperties conf) {
+    return SimilarSummaries.load(conf.getSdb().getDirectory());
+  }
+
+  @Bean
+  StaticRecipePages staticRecipePages(SearchConfigurationProperties conf) {
+    var directory = conf.getStaticPagesDirectory();
+    return directory == null
+        ? StaticRecipePages.DISABLED
+        : StaticRecipePages.load(directory, DatabaseId.read(conf.getSdb().getDirectory()));
+  }
+
+  // The filter cache only reaches the searcher via the JVM-wide defaults
+  // installed by filterCache(), hence the explicit dependency
+  @Bean
+  @DependsOn("filterCache")
   Searcher getSearcher(SearchConfigurationProperties conf) {
     return Searcher.Factory.open(
         conf.getLucene().getDirectory(), new TermQueryRewritingPolicy(200_000));
   }
 
+  // Application-wide init step: creating the filter cache also installs
+  // it as the default for every IndexSearcher opened afterwards. It
+  // gets warmed up with every sidebar option when materializing results
+  @Bean
+  LRUQueryCache filterCache(SearchConfigurationProperties conf, MeterRegistry registry) {
+    var filterConf = conf.getFilterCache();
+    var cache =
+        new LRUQueryCache(filterConf.getMaxEntries(), filterConf.getMaxRam().toBytes());
+
+    CategoryFilterCachingPolicy.installAsDefault(cache);
+
+    return QueryCacheMetrics.monitor(registry, cache, "filter");
+  }
+
+  @Bean
+  MaterializedResults materializedResults(Searcher searcher, SearchConfigurationProperties conf) {
+    return MaterializedResults.build(searcher, conf.getPageSize());
+  }
+
   @Bean
   MeterRegistryCustomizer<MeterRegistry> configureMetricTags(
       @Value("${git.head.describe:unknown}") String commitIdDescribe) {
@@ -51,6 +110,14 @@ public class BootApplication {
         registry.config().commonTags("application", "gula.recipes", "git_head", commitIdDescribe);
   }
 
+  @Bean("contentVersion")
+  String contentVersion(
+      SearchConfigurationProperties conf,
+      @Value("${git.head.describe:unknown}") String commitIdDescribe) {
+    return ContentVersion.of(
+        commitIdDescribe, conf.getLucene().getDirectory(), conf.getSdb().getDirectory());
+  }
+
   @Bean
   Duration searchTimeout(SearchConfigurationProperties conf) {
     return conf.getTimeout();
@@ -61,6 +128,11 @@ public class BootApplication {
     return conf.getPageSize();
   }
 
+  @Bean("searchMaxPage")
+  int maxPage(SearchConfigurationProperties conf) {
+    return conf.getMaxPage();
+  }
+
   @Bean("searchCircuitBreaker")
   CircuitBreaker getSearchCircuitBreaker(MeterRegistry registry) {
     var cbRegistry = CircuitBreakerRegistry.ofDefaults();
@@ -82,4 +154,59 @@ public class BootApplication {
 
     return CaffeineCacheMetrics.monitor(registry, cache, "search");
   }
+
+  @Bean
+  Cache<String, RenderedPage> responseCache(
+      SearchConfigurationProperties conf, MeterRegistry registry) {
+    // Pages only change when a new index/database is deployed, which
+    // means a restart, so there's no need to ever invalidate entries
+    Cache<String, RenderedPage> cache =
+        Caffeine.newBuilder()
+            .maximumWeight(conf.getResponseCacheSize().toBytes())
+            .weigher((String uri, RenderedPage page) -> uri.length() + page.weight())
+            .recordStats()
+            .build();
+
+    return CaffeineCacheMetrics.monitor(registry, cache, "response");
+  }
+
+  @Bean(name = "metadataScheduler", destroyMethod = "dispose")
+  Scheduler metadataScheduler(SearchConfigurationProperties conf) {
+    // Bounded: when the metadata database starts hitting the disk we'd
+    // rather queue requests than keep spawning threads. Not newParallel:
+    // its threads are marked as non-blocking and everything scheduled
+    // here blocks on I/O
+    var numCreated = new AtomicInteger();
+    var executor =
+        Executors.newFixedThreadPool(
+            conf.getMetadataThreads(),
+            runnable -> {
+              var thread = new Thread(runnable, "metadata-" + numCreated.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+    return Schedulers.fromExecutorService(executor);
+  }
+
+  // Rendering and compressing pages is CPU bound: it shouldn't take
+  // threads from the metadata scheduler, which spend most of their time
+  // waiting on the disk, nor hold an event loop
+  @Bean("renderScheduler")
+  Scheduler renderScheduler() {
+    return Schedulers.parallel();
+  }
+
+  @Bean
+  LongKeyedCache<RecipeMetadata> metadataCache(
+      SearchConfigurationProperties conf, MeterRegistry registry) {
+    var cache = new LongKeyedCache<RecipeMetadata>(conf.getMetadataCacheSize());
+    return LongKeyedCacheMetrics.monitor(registry, cache, "metadata");
+  }
+
+  @Bean
+  LongKeyedCache<List<SimilarInfo>> similarCache(
+      SearchConfigurationProperties conf, MeterRegistry registry) {
+    var cache = new LongKeyedCache<List<SimilarInfo>>(conf.getSimilarCacheSize());
+    return LongKeyedCacheMetrics.monitor(registry, cache, "similar");
+  }
 }
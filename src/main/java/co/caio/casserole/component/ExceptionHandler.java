@@ -4,7 +4,12 @@ import co.caio.casserole.TermQueryRewritingPolicy.PolicyException;
 import co.caio.casserole.component.ModelView.OverPaginationError;
 import co.caio.casserole.component.RequestHandler.RecipeNotFoundError;
 import co.caio.casserole.component.SearchParameterParser.SearchParameterException;
+import co.caio.casserole.ext.RenderedPage;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeoutException;
@@ -16,6 +21,7 @@ import org.springframework.boot.web.reactive.error.ErrorAttributes;
 import org.springframework.context.ApplicationContext;
 import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.codec.ServerCodecConfigurer;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.BodyInserters;
@@ -35,15 +41,25 @@ public class ExceptionHandler extends AbstractErrorWebExceptionHandler {
 
   private final ModelView modelView;
 
+  // Error pages only depend on their title and subtitle, so the ones
+  // with a fixed message are rendered once and served as bytes
+  // afterwards. Messages taken from the exception may echo user input:
+  // those are rendered every time instead of letting anyone fill
+  // (or churn) the cache
+  private final Cache<ErrorSpec, byte[]> renderedErrors =
+      Caffeine.newBuilder().recordStats().build();
+
   public ExceptionHandler(
       ErrorAttributes errorAttributes,
       ApplicationContext applicationContext,
       ServerCodecConfigurer serverCodecConfigurer,
-      ModelView modelView) {
+      ModelView modelView,
+      MeterRegistry registry) {
     super(errorAttributes, new ResourceProperties(), applicationContext);
     super.setMessageWriters(serverCodecConfigurer.getWriters());
     super.setMessageReaders(serverCodecConfigurer.getReaders());
     this.modelView = modelView;
+    CaffeineCacheMetrics.monitor(registry, renderedErrors, "error");
   }
 
   @Override
@@ -66,11 +82,17 @@ public class ExceptionHandler extends AbstractErrorWebExceptionHandler {
       spec = DEFAULT_ERROR_SPEC;
     }
 
-    return ServerResponse.status(spec.getStatus())
-        .body(
-            BodyInserters.fromObject(
-                modelView.renderError(
-                    spec.getTitle(), spec.getMessage().orElse(exception.getMessage()))));
+    if (spec.getMessage().isPresent()) {
+      var body =
+          renderedErrors.get(
+              spec,
+              key ->
+                  RenderedPage.toByteArray(
+                      modelView.renderError(key.getTitle(), key.getMessage().get())));
+      return respond(spec.getStatus(), body);
+    }
+
+    return respond(spec.getStatus(), spec.getTitle(), exception.getMessage());
   }
 
   private Mono<ServerResponse> handleResponseStatusException(ResponseStatusException ex) {
@@ -81,11 +103,17 @@ public class ExceptionHandler extends AbstractErrorWebExceptionHandler {
     }
 
     var reason = ex.getReason();
+    return respond(status, status.getReasonPhrase(), reason == null ? ex.getMessage() : reason);
+  }
+
+  private Mono<ServerResponse> respond(HttpStatus status, String title, String subtitle) {
+    return respond(status, RenderedPage.toByteArray(modelView.renderError(title, subtitle)));
+  }
+
+  private Mono<ServerResponse> respond(HttpStatus status, byte[] body) {
     return ServerResponse.status(status)
-        .body(
-            BodyInserters.fromObject(
-                modelView.renderError(
-                    status.getReasonPhrase(), reason == null ? ex.getMessage() : reason)));
+        .contentType(MediaType.TEXT_HTML)
+        .body(BodyInserters.fromObject(body));
   }
 
   private static final ErrorSpec DEFAULT_ERROR_SPEC =
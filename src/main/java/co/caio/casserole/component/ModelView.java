@@ -1,5 +1,9 @@
 package co.caio.casserole.component;
 
+import co.caio.casserole.ext.LongKeyedCache;
+import co.caio.casserole.ext.QueryStringBuilder;
+import co.caio.casserole.index.SimilarSummaries;
+import co.caio.casserole.index.SimilarSummaries.Summary;
 import co.caio.casserole.service.MetadataService;
 import co.caio.cerberus.db.RecipeMetadata;
 import co.caio.cerberus.model.SearchQuery;
@@ -15,14 +19,15 @@ import co.caio.tablier.view.Recipe;
 import co.caio.tablier.view.Search;
 import com.fizzed.rocker.RockerModel;
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalDouble;
 import java.util.OptionalInt;
 import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
-import org.springframework.web.util.UriComponentsBuilder;
 
 @Component
 class ModelView {
@@ -40,15 +45,33 @@ class ModelView {
   private static final String DEFAULT_UNKNOWN_ERROR_SUBTITLE = "Unknown Error Cause";
 
   private final int pageSize;
+  private final int maxPage;
   private final CircuitBreaker breaker;
   private final SidebarRenderer sidebarRenderer;
-
-  ModelView(@Qualifier("searchPageSize") int pageSize, CircuitBreaker breaker) {
+  private final SimilarSummaries similarSummaries;
+  private final LongKeyedCache<List<SimilarInfo>> similarCache;
+
+  ModelView(
+      @Qualifier("searchPageSize") int pageSize,
+      @Qualifier("searchMaxPage") int maxPage,
+      CircuitBreaker breaker,
+      SimilarSummaries similarSummaries,
+      LongKeyedCache<List<SimilarInfo>> similarCache) {
     this.pageSize = pageSize;
+    this.maxPage = maxPage;
     this.breaker = breaker;
+    this.similarSummaries = similarSummaries;
+    this.similarCache = similarCache;
     this.sidebarRenderer = new SidebarRenderer();
   }
 
+  // For rendering recipe pages outside of the server (see StaticRecipePages):
+  // they don't depend on the search settings nor on the breaker, so the
+  // returned view can't render anything else
+  static ModelView forRecipePages(SimilarSummaries similarSummaries) {
+    return new ModelView(0, 0, null, similarSummaries, new LongKeyedCache<>(1 << 16));
+  }
+
   RockerModel renderIndex() {
     switch (breaker.getState()) {
       case OPEN:
@@ -89,12 +112,34 @@ class ModelView {
     return sb.toString();
   }
 
+  // Templates read recipes through a lookup, which blocks whenever
+  // they aren't known yet. The server resolves everything a page needs
+  // beforehand, on the metadata scheduler (see resolveSearch and
+  // resolveSingleRecipe), so that rendering never waits on I/O
+  RecipeLookup newLookup(MetadataService db) {
+    return new RecipeLookup(db, similarSummaries, similarCache);
+  }
+
+  RecipeLookup resolveSearch(
+      SearchResult result, MetadataService db, List<RecipeMetadata> recipes) {
+    return newLookup(db).remember(result.recipeIds(), recipes);
+  }
+
+  RecipeLookup resolveSingleRecipe(RecipeMetadata recipe, MetadataService db) {
+    var lookup = newLookup(db);
+    lookup.findSimilar(recipe);
+    return lookup;
+  }
+
   RockerModel renderSearch(
-      SearchQuery query, SearchResult result, MetadataService db, UriComponentsBuilder uriBuilder) {
+      SearchQuery query, SearchResult result, MetadataService db, QueryStringBuilder uriBuilder) {
+    return renderSearch(query, result, newLookup(db), uriBuilder);
+  }
 
-    if (query.offset() >= result.totalHits() && result.totalHits() > 0) {
-      throw new OverPaginationError("No more results to show for this search");
-    }
+  RockerModel renderSearch(
+      SearchQuery query, SearchResult result, RecipeLookup lookup, QueryStringBuilder uriBuilder) {
+
+    checkPagination(query, result);
 
     var searchBuilder =
         new SearchResultsInfo.Builder()
@@ -102,48 +147,36 @@ class ModelView {
             .paginationEnd(result.recipeIds().size() + query.offset())
             .numMatching(result.totalHits());
 
-    searchBuilder.recipes(renderRecipes(result.recipeIds(), db));
+    searchBuilder.recipes(
+        renderRecipes(result.recipeIds(), lookup));
 
-    boolean isLastPage = query.offset() + pageSize >= result.totalHits();
     int currentPage = (query.offset() / pageSize) + 1;
+    // Don't link to pages the parser would reject
+    boolean isLastPage =
+        query.offset() + pageSize >= result.totalHits() || currentPage >= maxPage;
+
+    var pages = uriBuilder.splicer("page");
 
-    // NOTE that the following modifies the uriBuilder in place
     if (!isLastPage) {
-      searchBuilder.nextPageHref(
-          uriBuilder.replaceQueryParam("page", currentPage + 1).build().toUriString());
+      searchBuilder.nextPageHref(pages.with(Integer.toString(currentPage + 1)));
     }
 
     if (currentPage != 1) {
-      searchBuilder.previousPageHref(
-          uriBuilder.replaceQueryParam("page", currentPage - 1).build().toUriString());
+      searchBuilder.previousPageHref(pages.with(Integer.toString(currentPage - 1)));
     }
 
-    searchBuilder.sidebar(
-        sidebarRenderer.render(
-            query,
-            result,
-            // Sidebar links always lead to the first page
-            uriBuilder.replaceQueryParam("page")));
+    // Sidebar links always lead to the first page
+    var firstPage = uriBuilder.without("page");
+    searchBuilder.sidebar(sidebarRenderer.render(query, result, firstPage));
 
     int numFilters = (int) query.numSelectedFilters();
     if (numFilters > 0) {
       searchBuilder.numAppliedFilters(numFilters);
       searchBuilder.clearFiltersUrl(
-          uriBuilder
-              .cloneBuilder()
-              .replaceQuery(null)
-              .replaceQueryParam("q", query.fulltext().orElse(""))
-              .build()
-              .toUriString());
-    }
-
-    var extraParams =
-        uriBuilder
-            .replaceQueryParam("q")
-            .replaceQueryParam("page")
-            .build()
-            .getQueryParams()
-            .toSingleValueMap();
+          uriBuilder.onlyWith("q", query.fulltext().orElse("")).toUriString());
+    }
+
+    var extraParams = firstPage.without("q").toSingleValueMap();
 
     var siteInfo =
         new SiteInfo.Builder()
@@ -156,12 +189,17 @@ class ModelView {
     return Search.template(siteInfo, searchBuilder.build());
   }
 
-  private Iterable<RecipeInfo> renderRecipes(List<Long> recipeIds, MetadataService db) {
-    return recipeIds
+  static void checkPagination(SearchQuery query, SearchResult result) {
+    if (query.offset() >= result.totalHits() && result.totalHits() > 0) {
+      throw new OverPaginationError("No more results to show for this search");
+    }
+  }
+
+  private Iterable<RecipeInfo> renderRecipes(List<Long> recipeIds, RecipeLookup lookup) {
+    return lookup
+        .findByIds(recipeIds)
         .stream()
-        .map(db::findById)
-        .flatMap(Optional::stream)
-        .map(r -> buildAdapter(r, db))
+        .map(r -> buildAdapter(r, lookup))
         .collect(Collectors.toList());
   }
 
@@ -207,66 +245,188 @@ class ModelView {
   }
 
   RockerModel renderSingleRecipe(RecipeMetadata recipe, MetadataService db) {
+    return renderSingleRecipe(recipe, newLookup(db));
+  }
+
+  RockerModel renderSingleRecipe(RecipeMetadata recipe, RecipeLookup lookup) {
     return Recipe.template(
         new SiteInfo.Builder()
             .title(recipe.getName())
             .description(getRecipeDescription(recipe))
             .searchIsAutoFocus(false)
             .build(),
-        buildAdapter(recipe, db));
+        buildAdapter(recipe, lookup));
   }
 
   List<SimilarInfo> retrieveSimilarRecipes(List<Long> ids, MetadataService db) {
-    return ids.stream()
-        .map(db::findById)
-        .flatMap(Optional::stream)
-        .map(RecipeMetadataSimilarInfoAdapter::new)
+    return retrieveSimilarRecipes(ids, newLookup(db));
+  }
+
+  private static List<SimilarInfo> retrieveSimilarRecipes(List<Long> ids, RecipeLookup lookup) {
+    return lookup
+        .findByIds(ids)
+        .stream()
+        .map(SimilarRecipeSummary::new)
         .collect(Collectors.toList());
   }
 
-  RecipeMetadataRecipeInfoAdapter buildAdapter(RecipeMetadata recipe, MetadataService db) {
-    var similar = retrieveSimilarRecipes(recipe.getSimilarRecipeIds(), db);
-    return new RecipeMetadataRecipeInfoAdapter(recipe, similar);
+  private RecipeMetadataRecipeInfoAdapter buildAdapter(
+      RecipeMetadata recipe, RecipeLookup lookup) {
+    return new RecipeMetadataRecipeInfoAdapter(recipe, lookup);
   }
 
-  static class RecipeMetadataSimilarInfoAdapter extends SimilarInfo {
+  // A page references the same recipe multiple times (a result that's
+  // also similar to another one, recipes with overlapping similarities)
+  // so we remember every lookup done while rendering it
+  static class RecipeLookup {
+
+    private final MetadataService db;
+    private final SimilarSummaries similarSummaries;
+    private final LongKeyedCache<List<SimilarInfo>> similarCache;
+    private final Map<Long, Optional<RecipeMetadata>> seen = new HashMap<>();
+    private final Map<Long, List<SimilarInfo>> similar = new HashMap<>();
+
+    RecipeLookup(
+        MetadataService db,
+        SimilarSummaries similarSummaries,
+        LongKeyedCache<List<SimilarInfo>> similarCache) {
+      this.db = db;
+      this.similarSummaries = similarSummaries;
+      this.similarCache = similarCache;
+    }
+
+    // Similar recipes only need a few small fields, so instead of
+    // resolving (up to) 20 ids for every recipe page we read the
+    // summaries the loader wrote. Without them (or for recipes they
+    // don't know about) the resolved summaries of popular recipes
+    // are kept around instead
+    List<SimilarInfo> findSimilar(RecipeMetadata recipe) {
+      return similar.computeIfAbsent(recipe.getRecipeId(), id -> lookupSimilar(recipe));
+    }
+
+    private List<SimilarInfo> lookupSimilar(RecipeMetadata recipe) {
+      var stored = similarSummaries.find(recipe.getRecipeId());
 
-    private final RecipeMetadata delegate;
+      if (stored.isPresent()) {
+        return stored
+            .get()
+            .stream()
+            .map(SimilarRecipeSummary::new)
+            .collect(Collectors.toUnmodifiableList());
+      }
+
+      var cached = similarCache.getIfPresent(recipe.getRecipeId());
+
+      if (cached != null) {
+        return cached;
+      }
+
+      var resolved = List.copyOf(retrieveSimilarRecipes(recipe.getSimilarRecipeIds(), this));
+      similarCache.put(recipe.getRecipeId(), resolved);
+      return resolved;
+    }
+
+    // Records what was fetched for the given ids: the ones missing from
+    // the results don't exist, so they won't be asked for again
+    RecipeLookup remember(List<Long> recipeIds, List<RecipeMetadata> found) {
+      for (long recipeId : recipeIds) {
+        seen.putIfAbsent(recipeId, Optional.empty());
+      }
+      found.forEach(r -> seen.put(r.getRecipeId(), Optional.of(r)));
+      return this;
+    }
 
-    RecipeMetadataSimilarInfoAdapter(RecipeMetadata delegate) {
-      this.delegate = delegate;
+    Optional<RecipeMetadata> findById(long recipeId) {
+      return seen.computeIfAbsent(recipeId, db::findById);
+    }
+
+    List<RecipeMetadata> findByIds(List<Long> recipeIds) {
+      var unseen =
+          recipeIds
+              .stream()
+              .filter(id -> !seen.containsKey(id))
+              .mapToLong(Long::longValue)
+              .distinct()
+              .toArray();
+
+      if (unseen.length > 0) {
+        for (long recipeId : unseen) {
+          seen.put(recipeId, Optional.empty());
+        }
+        db.findByIds(unseen).forEach(r -> seen.put(r.getRecipeId(), Optional.of(r)));
+      }
+
+      return recipeIds
+          .stream()
+          .map(seen::get)
+          .flatMap(Optional::stream)
+          .collect(Collectors.toList());
+    }
+  }
+
+  static class SimilarRecipeSummary extends SimilarInfo {
+
+    private final String name;
+    private final String siteName;
+    private final String infoUrl;
+
+    SimilarRecipeSummary(RecipeMetadata recipe) {
+      this.name = recipe.getName();
+      this.siteName = recipe.getSiteName();
+      this.infoUrl = buildInfoUrl(recipe);
+    }
+
+    SimilarRecipeSummary(Summary summary) {
+      this.name = summary.getName();
+      this.siteName = summary.getSiteName();
+      this.infoUrl = buildInfoUrl(summary.getSlug(), summary.getRecipeId());
     }
 
     @Override
     public String name() {
-      return delegate.getName();
+      return name;
     }
 
     @Override
     public String siteName() {
-      return delegate.getSiteName();
+      return siteName;
     }
 
     @Override
     public String infoUrl() {
-      return buildInfoUrl(delegate);
+      return infoUrl;
     }
   }
 
-  private static final String URI_RECIPE_SLUG_ID = "/recipe/%s/%d";
+  private static final String URI_RECIPE_PREFIX = "/recipe/";
 
+  // Plain concatenation: String.format parses the pattern every call
+  // and this runs for every recipe card on every page
   static String buildInfoUrl(RecipeMetadata recipe) {
-    return String.format(URI_RECIPE_SLUG_ID, recipe.getSlug(), recipe.getRecipeId());
+    return buildInfoUrl(recipe.getSlug(), recipe.getRecipeId());
+  }
+
+  private static String buildInfoUrl(String slug, long recipeId) {
+    return new StringBuilder(URI_RECIPE_PREFIX.length() + slug.length() + 21)
+        .append(URI_RECIPE_PREFIX)
+        .append(slug)
+        .append('/')
+        .append(recipeId)
+        .toString();
   }
 
   static class RecipeMetadataRecipeInfoAdapter implements RecipeInfo {
 
     private final RecipeMetadata metadata;
-    private final List<SimilarInfo> similarRecipes;
+    private final RecipeLookup lookup;
+
+    // Only resolved if the template asks for it: search pages don't
+    private List<SimilarInfo> similarRecipes;
+    private String infoUrl;
 
-    RecipeMetadataRecipeInfoAdapter(RecipeMetadata metadata, List<SimilarInfo> similarRecipes) {
+    RecipeMetadataRecipeInfoAdapter(RecipeMetadata metadata, RecipeLookup lookup) {
       this.metadata = metadata;
-      this.similarRecipes = similarRecipes;
+      this.lookup = lookup;
     }
 
     @Override
@@ -286,7 +446,11 @@ class ModelView {
 
     @Override
     public String infoUrl() {
-      return buildInfoUrl(metadata);
+      // Templates link to the recipe more than once per card
+      if (infoUrl == null) {
+        infoUrl = buildInfoUrl(metadata);
+      }
+      return infoUrl;
     }
 
     @Override
@@ -336,18 +500,21 @@ class ModelView {
 
     @Override
     public boolean hasSimilarRecipes() {
-      return similarRecipes.size() > 0;
+      return !metadata.getSimilarRecipeIds().isEmpty() && similarRecipes().size() > 0;
     }
 
     @Override
     public List<SimilarInfo> similarRecipes() {
+      if (similarRecipes == null) {
+        similarRecipes = lookup.findSimilar(metadata);
+      }
       return similarRecipes;
     }
   }
 
   static class OverPaginationError extends RuntimeException {
     OverPaginationError(String message) {
-      super(message);
+      super(message, null, false, false);
     }
   }
 }
@@ -2,26 +2,33 @@ package co.caio.casserole.component;
 
 import static org.springframework.web.reactive.function.server.RouterFunctions.route;
 
+import co.caio.casserole.ext.QueryStringBuilder;
+import co.caio.casserole.ext.RenderedPage;
+import co.caio.casserole.index.KnownRecipeIds;
+import co.caio.casserole.index.MaterializedResults;
 import co.caio.casserole.service.MetadataService;
 import co.caio.casserole.service.SearchService;
-import co.caio.cerberus.db.RecipeMetadata;
 import co.caio.cerberus.model.SearchQuery;
 import co.caio.cerberus.model.SearchResult;
-import com.fizzed.rocker.RockerModel;
 import com.github.benmanes.caffeine.cache.Cache;
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
 import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.server.RouterFunction;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
-import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
+import reactor.core.scheduler.Scheduler;
 
 @Component
 public class RequestHandler {
@@ -32,6 +39,13 @@ public class RequestHandler {
   private final CircuitBreaker breaker;
   private final Duration searchTimeout;
   private final Cache<SearchQuery, SearchResult> cache;
+  private final MaterializedResults materializedResults;
+  private final Scheduler metadataScheduler;
+  private final Scheduler renderScheduler;
+  private final KnownRecipeIds knownRecipeIds;
+  private final Cache<String, RenderedPage> responseCache;
+  private final String contentVersion;
+  private final StaticRecipePages staticRecipePages;
 
   public RequestHandler(
       SearchService searchService,
@@ -40,7 +54,14 @@ public class RequestHandler {
       ModelView modelView,
       MetadataService metadataService,
       SearchParameterParser parameterParser,
-      Cache<SearchQuery, SearchResult> cache) {
+      Cache<SearchQuery, SearchResult> cache,
+      MaterializedResults materializedResults,
+      @Qualifier("metadataScheduler") Scheduler metadataScheduler,
+      @Qualifier("renderScheduler") Scheduler renderScheduler,
+      KnownRecipeIds knownRecipeIds,
+      Cache<String, RenderedPage> responseCache,
+      @Qualifier("contentVersion") String contentVersion,
+      StaticRecipePages staticRecipePages) {
     this.searchService = searchService;
     this.breaker = breaker;
     this.searchTimeout = searchTimeout;
@@ -48,6 +69,13 @@ public class RequestHandler {
     this.modelView = modelView;
     this.metadataService = metadataService;
     this.cache = cache;
+    this.materializedResults = materializedResults;
+    this.metadataScheduler = metadataScheduler;
+    this.renderScheduler = renderScheduler;
+    this.knownRecipeIds = knownRecipeIds;
+    this.responseCache = responseCache;
+    this.contentVersion = contentVersion;
+    this.staticRecipePages = staticRecipePages;
   }
 
   @Bean
@@ -57,8 +85,8 @@ public class RequestHandler {
         .GET("/", handler::index)
         .GET("/recipe/{slug}/{recipeId}", handler::recipe)
         .HEAD("/", handler::index)
-        .HEAD("/search", handler::search)
-        .HEAD("/recipe/{slug}/{recipeId}", handler::recipe)
+        .HEAD("/search", handler::searchHead)
+        .HEAD("/recipe/{slug}/{recipeId}", handler::recipeHead)
         .build();
   }
 
@@ -68,11 +96,16 @@ public class RequestHandler {
         .body(BodyInserters.fromObject(modelView.renderIndex()));
   }
 
+  // The result GET would use without searching, or null
+  private SearchResult knownResult(SearchQuery query) {
+    return materializedResults.get(query).orElseGet(() -> cache.getIfPresent(query));
+  }
+
   Mono<SearchResult> fetchResult(SearchQuery query) {
-    var cached = cache.getIfPresent(query);
+    var known = knownResult(query);
 
-    if (cached != null) {
-      return Mono.just(cached);
+    if (known != null) {
+      return Mono.just(known);
     }
 
     return searchService
@@ -83,46 +116,320 @@ public class RequestHandler {
   }
 
   Mono<ServerResponse> search(ServerRequest request) {
+    // Throws for bad input: conditional or not, it's a 400
     var query = parser.buildQuery(request.queryParams().toSingleValueMap());
 
-    return ServerResponse.ok()
-        .contentType(MediaType.TEXT_HTML)
-        .body(
-            fetchResult(query)
-                .publishOn(Schedulers.elastic())
-                .map(
-                    result ->
-                        modelView.renderSearch(
-                            query,
-                            result,
-                            metadataService,
-                            UriComponentsBuilder.fromUri(request.uri()))),
-            RockerModel.class);
-  }
-
-  private RecipeMetadata fromRequest(ServerRequest request) {
-    var slug = request.pathVariable("slug");
-    var recipeId = Long.parseLong(request.pathVariable("recipeId"));
+    // Links are rendered in canonical order too: pages for equivalent
+    // uris are then byte for byte the same, as the shared cache entry
+    // and strong ETag claim
+    var uriBuilder = QueryStringBuilder.fromUri(request.uri()).canonical();
+    var key = uriBuilder.toUriString();
+    var etag = etagFor(request, key);
+    var cached = responseCache.getIfPresent(key);
 
-    var recipe = metadataService.findById(recipeId).orElseThrow(RecipeNotFoundError::new);
+    if (isNotModified(request, etag, cached != null)) {
+      return notModified(etag);
+    }
 
-    if (!slug.equals(recipe.getSlug())) {
-      throw new RecipeNotFoundError();
+    if (cached != null) {
+      return respond(request, cached, etag);
     }
 
-    return recipe;
+    // NOTE The metadata for every result is read on the metadata
+    //      scheduler; rendering (and compressing) the page is CPU work
+    //      and happens on the render scheduler
+    return fetchResult(query)
+        .flatMap(
+            result ->
+                metadataService
+                    .fetchByIds(result.recipeIds())
+                    .map(
+                        recipes ->
+                            modelView.renderSearch(
+                                query,
+                                result,
+                                modelView.resolveSearch(result, metadataService, recipes),
+                                uriBuilder)))
+        .publishOn(renderScheduler)
+        .map(model -> RenderedPage.of(model))
+        .doOnNext(page -> responseCache.put(key, page))
+        .flatMap(page -> respondIfModified(request, page, etag));
   }
 
   Mono<ServerResponse> recipe(ServerRequest request) {
-    var recipe = fromRequest(request);
+    var slug = request.pathVariable("slug");
+    var recipeId = parseRecipeId(request.pathVariable("recipeId"));
+
+    if (recipeId < 0 || !knownRecipeIds.mightExist(recipeId)) {
+      return Mono.error(new RecipeNotFoundError());
+    }
+
+    var key = responseCacheKey(request);
+
+    return findStaticPage(request, slug, recipeId)
+        .flatMap(
+            page -> {
+              var staticEtag = staticEtagFor(key);
+
+              if (isNotModified(request, staticEtag, true)) {
+                return notModified(staticEtag);
+              }
+
+              // NOTE A FileSystemResource body goes through netty's zero-copy
+              //      file transfer (sendfile) when the connection allows it
+              return pageHeaders(staticEtag)
+                  .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                  .body(BodyInserters.fromResource(new FileSystemResource(page.getPath())));
+            })
+        .switchIfEmpty(Mono.defer(() -> renderRecipe(request, slug, recipeId, key)));
+  }
+
+  private Mono<ServerResponse> renderRecipe(
+      ServerRequest request, String slug, long recipeId, String key) {
+    var etag = etagFor(request, key);
+    var cached = responseCache.getIfPresent(key);
+
+    if (isNotModified(request, etag, cached != null)) {
+      return notModified(etag);
+    }
+
+    if (cached != null) {
+      return respond(request, cached, etag);
+    }
+
+    // NOTE The recipe and its similar recipes are read on the metadata
+    //      scheduler, the page is rendered on the render scheduler
+    return metadataService
+        .fetchById(recipeId)
+        .filter(recipe -> slug.equals(recipe.getSlug()))
+        .switchIfEmpty(Mono.defer(() -> Mono.error(new RecipeNotFoundError())))
+        .map(
+            recipe ->
+                modelView.renderSingleRecipe(
+                    recipe, modelView.resolveSingleRecipe(recipe, metadataService)))
+        .publishOn(renderScheduler)
+        .map(model -> RenderedPage.of(model))
+        .doOnNext(page -> responseCache.put(key, page))
+        .flatMap(page -> respondIfModified(request, page, etag));
+  }
+
+  // Pre-rendered pages are gzipped, so they're only for clients that
+  // accept it. The index knows which pages exist, but a file could've
+  // gone missing (or been cut short) since it was written: that gets
+  // checked on the metadata scheduler before anything is sent, and
+  // such pages are rendered instead
+  private Mono<StaticRecipePages.Page> findStaticPage(
+      ServerRequest request, String slug, long recipeId) {
+    if (!RenderedPage.acceptsGzip(request.headers().header(HttpHeaders.ACCEPT_ENCODING))) {
+      return Mono.empty();
+    }
+
+    return Mono.justOrEmpty(staticRecipePages.find(slug, recipeId))
+        .publishOn(metadataScheduler)
+        .filter(StaticRecipePages.Page::isServable);
+  }
+
+  // HEAD answers with the same status and headers as GET, so it has to
+  // know the result (and thus might search) but never renders anything.
+  // When the page happens to be in the response cache we also know its
+  // size. The result lands in the search cache: a GET that follows it
+  // only has to render
+  Mono<ServerResponse> searchHead(ServerRequest request) {
+    // Throws for bad input, just like GET would
+    var query = parser.buildQuery(request.queryParams().toSingleValueMap());
+
+    var key = responseCacheKey(request);
+    var etag = etagFor(request, key);
+    var cached = responseCache.getIfPresent(key);
+
+    if (isNotModified(request, etag, cached != null)) {
+      return notModified(etag);
+    }
+
+    if (cached != null) {
+      return head(request, cached, etag);
+    }
+
+    return fetchResult(query)
+        // Throws just like rendering it would
+        .doOnNext(result -> ModelView.checkPagination(query, result))
+        .flatMap(
+            result ->
+                isNotModified(request, etag, true)
+                    ? notModified(etag)
+                    : head(request, null, etag));
+  }
+
+  Mono<ServerResponse> recipeHead(ServerRequest request) {
+    var slug = request.pathVariable("slug");
+    var recipeId = parseRecipeId(request.pathVariable("recipeId"));
+
+    if (recipeId < 0 || !knownRecipeIds.mightExist(recipeId)) {
+      return Mono.error(new RecipeNotFoundError());
+    }
+
+    var key = responseCacheKey(request);
+
+    // Same headers GET would send for a static page
+    return findStaticPage(request, slug, recipeId)
+        .flatMap(
+            page -> {
+              var staticEtag = staticEtagFor(key);
+
+              if (isNotModified(request, staticEtag, true)) {
+                return notModified(staticEtag);
+              }
+
+              return pageHeaders(staticEtag)
+                  .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                  .contentLength(page.getContentLength())
+                  .build();
+            })
+        .switchIfEmpty(Mono.defer(() -> recipeHeadWithoutStaticPage(request, slug, recipeId, key)));
+  }
+
+  private Mono<ServerResponse> recipeHeadWithoutStaticPage(
+      ServerRequest request, String slug, long recipeId, String key) {
+    var etag = etagFor(request, key);
+    var cached = responseCache.getIfPresent(key);
+
+    if (isNotModified(request, etag, cached != null)) {
+      return notModified(etag);
+    }
+
+    if (cached != null) {
+      return head(request, cached, etag);
+    }
+
+    // Existence still needs checking, but that's a single (likely
+    // cached) metadata read instead of a full page render
+    return metadataService
+        .fetchById(recipeId)
+        .filter(recipe -> slug.equals(recipe.getSlug()))
+        .switchIfEmpty(Mono.defer(() -> Mono.error(new RecipeNotFoundError())))
+        .flatMap(
+            recipe ->
+                isNotModified(request, etag, true)
+                    ? notModified(etag)
+                    : head(request, null, etag));
+  }
+
+  private static Mono<ServerResponse> head(
+      ServerRequest request, RenderedPage page, String etag) {
+    var builder = pageHeaders(etag);
+
+    if (page != null) {
+      if (RenderedPage.acceptsGzip(request.headers().header(HttpHeaders.ACCEPT_ENCODING))) {
+        builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").contentLength(page.getGzip().length);
+      } else {
+        builder.contentLength(page.getIdentity().length);
+      }
+    }
+
+    return builder.build();
+  }
+
+  private static ServerResponse.BodyBuilder pageHeaders(String etag) {
     return ServerResponse.ok()
         .contentType(MediaType.TEXT_HTML)
-        .body(BodyInserters.fromObject(modelView.renderSingleRecipe(recipe, metadataService)));
+        .eTag(etag)
+        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+  }
+
+  // Pages are fully determined by the (canonical) uri and the content
+  // version, so together they make for a strong validator that never
+  // matches a different page. Representations differ per encoding
+  // though, and so must their tags
+  private String etagFor(ServerRequest request, String canonicalUri) {
+    var gzip = RenderedPage.acceptsGzip(request.headers().header(HttpHeaders.ACCEPT_ENCODING));
+    return etagFor(contentVersion, canonicalUri, gzip);
+  }
+
+  // Static pages were rendered by the generator, not by this server:
+  // they change when regenerated, regardless of the content version
+  private String staticEtagFor(String canonicalUri) {
+    return etagFor(staticRecipePages.getGeneration(), canonicalUri, true);
+  }
+
+  private static String etagFor(String version, String canonicalUri, boolean gzip) {
+    var hash = UUID.nameUUIDFromBytes((version + canonicalUri).getBytes(StandardCharsets.UTF_8));
+    return "\"" + hash + (gzip ? "-gz\"" : "\"");
+  }
+
+  // Tags are only ever handed out with a 200, so matching one means
+  // the page exists. A `*` however matches whatever is requested: it
+  // only counts when we know the page exists, else it'd turn what
+  // should be a 404 (or 400) into a 304
+  static boolean isNotModified(ServerRequest request, String etag, boolean exists) {
+    for (String candidate : request.headers().asHttpHeaders().getIfNoneMatch()) {
+      // Comparison for If-None-Match is weak
+      var tag = candidate.startsWith("W/") ? candidate.substring(2) : candidate;
+      if (tag.equals(etag) || (exists && tag.equals("*"))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static Mono<ServerResponse> notModified(String etag) {
+    return ServerResponse.status(HttpStatus.NOT_MODIFIED)
+        .eTag(etag)
+        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+        .build();
+  }
+
+  private static String responseCacheKey(ServerRequest request) {
+    // Only what affects the rendered page: path and query string. The
+    // order of the parameters doesn't change what's rendered
+    return QueryStringBuilder.fromUri(request.uri()).toCanonicalString();
+  }
+
+  // For pages just rendered: only now do we know they exist
+  private static Mono<ServerResponse> respondIfModified(
+      ServerRequest request, RenderedPage page, String etag) {
+    return isNotModified(request, etag, true) ? notModified(etag) : respond(request, page, etag);
+  }
+
+  private static Mono<ServerResponse> respond(
+      ServerRequest request, RenderedPage page, String etag) {
+    var builder = pageHeaders(etag);
+
+    // NOTE The server's compression leaves responses that already
+    //      have a Content-Encoding alone, so this is sent as is
+    if (RenderedPage.acceptsGzip(request.headers().header(HttpHeaders.ACCEPT_ENCODING))) {
+      return builder
+          .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+          .body(BodyInserters.fromObject(page.getGzip()));
+    }
+
+    return builder.body(BodyInserters.fromObject(page.getIdentity()));
+  }
+
+  // Recipe ids are never negative, so -1 stands for anything that isn't
+  // one. Unlike Long.parseLong, made up ids don't cost an exception
+  static long parseRecipeId(String value) {
+    if (value.isEmpty()) {
+      return -1;
+    }
+
+    long result = 0;
+    for (int i = 0; i < value.length(); i++) {
+      var digit = value.charAt(i) - '0';
+
+      if (digit < 0 || digit > 9 || result > (Long.MAX_VALUE - digit) / 10) {
+        return -1;
+      }
+
+      result = result * 10 + digit;
+    }
+
+    return result;
   }
 
   static class RecipeNotFoundError extends RuntimeException {
     RecipeNotFoundError() {
-      super();
+      // Stackless: scans for made up ids end up here a lot
+      super(null, null, false, false);
     }
   }
 }
@@ -1,5 +1,6 @@
 package co.caio.casserole.component;
 
+import co.caio.casserole.index.DisplayedFacets;
 import co.caio.casserole.index.Facet.DietOption;
 import co.caio.cerberus.model.SearchQuery;
 import co.caio.cerberus.model.SearchQuery.DietSpec;
@@ -12,9 +13,12 @@ import org.springframework.stereotype.Component;
 @Component
 public class SearchParameterParser {
   private final int pageSize;
+  private final int maxPage;
 
-  public SearchParameterParser(@Qualifier("searchPageSize") int pageSize) {
+  public SearchParameterParser(
+      @Qualifier("searchPageSize") int pageSize, @Qualifier("searchMaxPage") int maxPage) {
     this.pageSize = pageSize;
+    this.maxPage = maxPage;
   }
 
   public SearchQuery buildQuery(Map<String, String> params) {
@@ -32,7 +36,7 @@ public class SearchParameterParser {
         new SearchQuery.Builder()
             .fulltext("") // Overwritten if &q=; is provided
             .maxResults(pageSize)
-            .maxFacets(5);
+            .maxFacets(DisplayedFacets.MAX_FACETS);
 
     // TODO jdk12 switches plz
     params.forEach(
@@ -65,9 +69,13 @@ public class SearchParameterParser {
             case "page":
               // page starts from 1, not 0
               var pageNumber = parseUnsignedInt(value);
-              if (pageNumber > 30) {
+              // Cerberus paginates by offset, so deep pages get
+              // progressively more expensive to collect
+              if (pageNumber > maxPage) {
                 throw new SearchParameterException(
-                    "For performance reasons, viewing pages 31+ is not allowed.");
+                    "For performance reasons, viewing pages "
+                        + (maxPage + 1)
+                        + "+ is not allowed.");
               }
               builder.offset((pageNumber - 1) * pageSize);
               break;
@@ -76,7 +84,16 @@ public class SearchParameterParser {
           }
         });
 
-    return builder.build();
+    var query = builder.build();
+
+    // Facets are collected in a single pass for every dimension, so
+    // the only thing we can skip is the whole collection: when every
+    // category displayed on the sidebar already has a selection
+    if (!DisplayedFacets.needsFacets(query)) {
+      return builder.maxFacets(0).build();
+    }
+
+    return query;
   }
 
   private int parseUnsignedInt(String value) {
@@ -148,12 +165,14 @@ public class SearchParameterParser {
   }
 
   public static class SearchParameterException extends RuntimeException {
+    // Bad input is routine (and often automated), so these are
+    // stackless: filling the stack trace costs more than handling them
     SearchParameterException(String message) {
-      super(message);
+      super(message, null, false, false);
     }
 
     SearchParameterException(Throwable throwable) {
-      super(throwable);
+      super(throwable == null ? null : throwable.toString(), throwable, false, false);
     }
   }
 }
@@ -1,5 +1,7 @@
 package co.caio.casserole.component;
 
+import co.caio.casserole.ext.QueryStringBuilder;
+import co.caio.casserole.index.DisplayedFacets;
 import co.caio.casserole.index.Facet.Category;
 import co.caio.casserole.index.Facet.CategoryOption;
 import co.caio.cerberus.model.FacetData;
@@ -9,7 +11,6 @@ import co.caio.cerberus.model.SearchQuery.RangedSpec;
 import co.caio.cerberus.model.SearchResult;
 import co.caio.tablier.model.FilterInfo;
 import co.caio.tablier.model.SidebarInfo;
-import org.springframework.web.util.UriComponentsBuilder;
 
 public class SidebarRenderer {
 
@@ -24,12 +25,12 @@ public class SidebarRenderer {
 
   public SidebarRenderer() {}
 
-  public SidebarInfo render(SearchQuery query, UriComponentsBuilder uriBuilder) {
+  public SidebarInfo render(SearchQuery query, QueryStringBuilder uriBuilder) {
     return render(query, EMPTY_SEARCH_RESULT, uriBuilder);
   }
 
   public SidebarInfo render(
-      SearchQuery query, SearchResult result, UriComponentsBuilder uriBuilder) {
+      SearchQuery query, SearchResult result, QueryStringBuilder uriBuilder) {
     var builder = new SidebarInfo.Builder();
 
     var sort = new FilterInfo.Builder().name(Category.SORT.getTitle()).isRemovable(false);
@@ -41,7 +42,7 @@ public class SidebarRenderer {
     var diet = new FilterInfo.Builder().name(Category.DIET.getTitle());
     addCategoryOptions(
         diet, Category.DIET, query.diet().orElse(UNSELECTED_DIET), result, uriBuilder);
-    diet.showCounts(hasFacetData && query.diet().isEmpty());
+    diet.showCounts(hasFacetData && DisplayedFacets.showCounts(Category.DIET, query));
     builder.addFilters(diet.build());
 
     var numIngredient = new FilterInfo.Builder().name(Category.NUM_INGREDIENT.getTitle());
@@ -51,7 +52,8 @@ public class SidebarRenderer {
         query.numIngredients().orElse(UNSELECTED_RANGE),
         result,
         uriBuilder);
-    numIngredient.showCounts(hasFacetData && query.numIngredients().isEmpty());
+    numIngredient.showCounts(
+        hasFacetData && DisplayedFacets.showCounts(Category.NUM_INGREDIENT, query));
     builder.addFilters(numIngredient.build());
 
     var totalTime =
@@ -62,7 +64,7 @@ public class SidebarRenderer {
         query.totalTime().orElse(UNSELECTED_RANGE),
         result,
         uriBuilder);
-    totalTime.showCounts(hasFacetData && query.totalTime().isEmpty());
+    totalTime.showCounts(hasFacetData && DisplayedFacets.showCounts(Category.TOTAL_TIME, query));
     builder.addFilters(totalTime.build());
 
     var nutrition = new FilterInfo.Builder().name(NUTRITION_INFO_NAME).showCounts(hasFacetData);
@@ -84,11 +86,7 @@ public class SidebarRenderer {
         query.carbohydrateContent().orElse(UNSELECTED_RANGE),
         result,
         uriBuilder);
-    nutrition.showCounts(
-        hasFacetData
-            && query.calories().isEmpty()
-            && query.fatContent().isEmpty()
-            && query.carbohydrateContent().isEmpty());
+    nutrition.showCounts(hasFacetData && DisplayedFacets.showCounts(Category.CALORIES, query));
     builder.addFilters(nutrition.build());
 
     return builder.build();
@@ -108,9 +106,11 @@ public class SidebarRenderer {
       Category category,
       Object selected,
       SearchResult result,
-      UriComponentsBuilder cloneMe) {
+      QueryStringBuilder uriBuilder) {
 
-    var uriBuilder = cloneMe.cloneBuilder();
+    // Every option links to the same uri, differing only in the value
+    // for this category (or its absence, to deselect)
+    var splicer = uriBuilder.splicer(category.getIndexKey());
 
     category
         .getOptions()
@@ -118,18 +118,12 @@ public class SidebarRenderer {
             opt -> {
               var isActive = opt.isActive(selected);
 
-              if (isActive) {
-                uriBuilder.replaceQueryParam(category.getIndexKey());
-              } else {
-                uriBuilder.replaceQueryParam(category.getIndexKey(), opt.getIndexKey());
-              }
-
               var filterOption =
                   new FilterInfo.FilterOption.Builder()
                       .name(opt.getTitle())
                       .count(countLabelData(result, category, opt))
                       .isActive(isActive)
-                      .href(uriBuilder.build().toUriString())
+                      .href(isActive ? splicer.without() : splicer.with(opt.getIndexKey()))
                       .build();
 
               infoBuilder.addOptions(filterOption);
@@ -0,0 +1,195 @@
+package co.caio.casserole.component;
+
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+import co.caio.casserole.ext.RenderedPage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+@Component
+public class StaticAssets {
+
+  // Every asset is loaded in memory at startup and compressed once, so
+  // serving one doesn't involve resolvers nor reading from the jar.
+  //
+  // Ideally we'd serve them from content-hashed urls with a far future
+  // expiration, but tablier's templates reference assets by fixed urls
+  // (/css/main.css, /img/logo32.png, ...). Instead, each asset gets a
+  // strong ETag from its content: after max-age expires clients only
+  // revalidate, getting a bodyless 304 instead of the whole thing
+
+  private static final Logger logger = LoggerFactory.getLogger(StaticAssets.class);
+
+  private static final CacheControl CACHE_CONTROL = CacheControl.maxAge(3, TimeUnit.DAYS);
+
+  private final Map<String, Asset> assets;
+
+  public StaticAssets() throws IOException {
+    var assets = new HashMap<String, Asset>();
+
+    load(assets, "/css/", "classpath:/tablier/css/*.css", "");
+    // Static pages are served without their extension
+    load(assets, "/page/", "classpath:/tablier/pages/*.html", ".html");
+    load(assets, "/img/", "classpath:/tablier/img/*", "");
+
+    logger.info("Loaded {} static assets", assets.size());
+    this.assets = Map.copyOf(assets);
+  }
+
+  @Bean
+  public RouterFunction<ServerResponse> assetRouter(StaticAssets handler) {
+    return route()
+        .GET("/css/*", handler::serve)
+        .GET("/page/*", handler::serve)
+        .GET("/img/*", handler::serve)
+        .HEAD("/css/*", handler::serve)
+        .HEAD("/page/*", handler::serve)
+        .HEAD("/img/*", handler::serve)
+        .build();
+  }
+
+  Mono<ServerResponse> serve(ServerRequest request) {
+    var asset = assets.get(request.path());
+
+    if (asset == null) {
+      return Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND));
+    }
+
+    var gzip =
+        asset.gzip != null
+            && RenderedPage.acceptsGzip(request.headers().header(HttpHeaders.ACCEPT_ENCODING));
+    var etag = gzip ? asset.gzipEtag : asset.etag;
+
+    var notModified = RequestHandler.isNotModified(request, etag, true);
+    var builder =
+        notModified
+            ? ServerResponse.status(HttpStatus.NOT_MODIFIED)
+            : ServerResponse.ok().contentType(asset.mediaType);
+
+    builder.eTag(etag).cacheControl(CACHE_CONTROL);
+
+    if (asset.gzip != null) {
+      builder.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    }
+
+    if (notModified) {
+      return builder.build();
+    }
+
+    if (gzip) {
+      return builder
+          .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+          .body(BodyInserters.fromObject(asset.gzip));
+    }
+
+    return builder.body(BodyInserters.fromObject(asset.identity));
+  }
+
+  private static void load(
+      Map<String, Asset> assets, String urlPrefix, String pattern, String stripSuffix)
+      throws IOException {
+    var resolver = new PathMatchingResourcePatternResolver();
+
+    for (Resource resource : resolver.getResources(pattern)) {
+      var filename = resource.getFilename();
+
+      // Precompressed siblings are picked up along with their source
+      if (filename == null || filename.isEmpty() || filename.endsWith(".gz")) {
+        continue;
+      }
+
+      byte[] identity;
+      try (var in = resource.getInputStream()) {
+        identity = in.readAllBytes();
+      }
+
+      var mediaType =
+          MediaTypeFactory.getMediaType(filename).orElse(MediaType.APPLICATION_OCTET_STREAM);
+
+      byte[] gzip = null;
+      if (isCompressible(mediaType)) {
+        var precompressed = resource.createRelative(filename + ".gz");
+        if (precompressed.exists()) {
+          try (var in = precompressed.getInputStream()) {
+            gzip = in.readAllBytes();
+          }
+        } else {
+          gzip = gzip(identity);
+        }
+      }
+
+      var name = filename.substring(0, filename.length() - stripSuffix.length());
+      assets.put(urlPrefix + name, new Asset(mediaType, identity, gzip));
+    }
+  }
+
+  private static boolean isCompressible(MediaType mediaType) {
+    return mediaType.getType().equals("text")
+        || mediaType.getSubtype().endsWith("xml")
+        || mediaType.getSubtype().endsWith("json")
+        || mediaType.getSubtype().endsWith("javascript");
+  }
+
+  private static byte[] gzip(byte[] input) throws IOException {
+    var bytes = new ByteArrayOutputStream(input.length / 4);
+    try (var out = new GZIPOutputStream(bytes)) {
+      out.write(input);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static String contentHash(byte[] content) {
+    try {
+      var digest = MessageDigest.getInstance("SHA-256").digest(content);
+      var sb = new StringBuilder();
+      // Half of it is plenty to tell versions apart
+      for (int i = 0; i < digest.length / 2; i++) {
+        sb.append(String.format("%02x", digest[i]));
+      }
+      return sb.toString();
+    } catch (NoSuchAlgorithmException wrapped) {
+      throw new RuntimeException(wrapped);
+    }
+  }
+
+  static class Asset {
+    private final MediaType mediaType;
+    private final byte[] identity;
+    private final byte[] gzip;
+    private final String etag;
+    private final String gzipEtag;
+
+    Asset(MediaType mediaType, byte[] identity, byte[] gzip) {
+      this.mediaType = mediaType;
+      this.identity = identity;
+      this.gzip = gzip;
+
+      var hash = contentHash(identity);
+      this.etag = "\"" + hash + "\"";
+      this.gzipEtag = "\"" + hash + "-gz\"";
+    }
+  }
+}
@@ -0,0 +1,231 @@
+package co.caio.casserole.component;
+
+import co.caio.casserole.ext.LongKeyedCache;
+import co.caio.casserole.ext.RenderedPage;
+import co.caio.casserole.index.SimilarSummaries;
+import co.caio.casserole.service.MetadataService;
+import co.caio.cerberus.db.RecipeMetadata;
+import co.caio.cerberus.db.RecipeMetadataDatabase;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.scheduler.Schedulers;
+
+public class StaticRecipePages {
+
+  // Recipe pages only depend on the metadata database, so the loader
+  // can render every one of them ahead of time. They're stored gzipped
+  // (what virtually every client, crawlers included, asks for) and are
+  // sent straight from disk via netty's zero-copy file transfer.
+  //
+  // Which pages exist (and their sizes) is written to an index next to
+  // them and loaded at startup, so looking a page up never blocks the
+  // event loop on the filesystem. Every run of the generator gets its
+  // own generation, which pages are tagged with instead of the server's
+  // content version: they're only as fresh as the run that wrote them.
+  // The index also records which database the pages were rendered
+  // from: pages from any other database are ignored altogether
+
+  private static final Logger logger = LoggerFactory.getLogger(StaticRecipePages.class);
+
+  public static final String INDEX_FILENAME = "pages.bin";
+
+  public static final StaticRecipePages DISABLED =
+      new StaticRecipePages(null, "", new long[0], new long[0], new long[0]);
+
+  private static final int NUM_SHARDS = 1000;
+
+  private final Path directory;
+  private final String generation;
+  private final long[] sortedIds;
+  private final long[] slugHashes;
+  private final long[] lengths;
+
+  private StaticRecipePages(
+      Path directory, String generation, long[] sortedIds, long[] slugHashes, long[] lengths) {
+    this.directory = directory;
+    this.generation = generation;
+    this.sortedIds = sortedIds;
+    this.slugHashes = slugHashes;
+    this.lengths = lengths;
+  }
+
+  public Optional<Page> find(String slug, long recipeId) {
+    var index = Arrays.binarySearch(sortedIds, recipeId);
+
+    if (index < 0 || slugHashes[index] != slugHash(slug)) {
+      return Optional.empty();
+    }
+
+    return Optional.of(new Page(pathFor(directory, recipeId), lengths[index]));
+  }
+
+  public String getGeneration() {
+    return generation;
+  }
+
+  public int size() {
+    return sortedIds.length;
+  }
+
+  // Sharded so that no directory ends up with millions of entries.
+  // Named by id alone: the slug is checked against the index, so it
+  // never gets anywhere near the filesystem
+  static Path pathFor(Path directory, long recipeId) {
+    return directory
+        .resolve(Long.toString(Math.floorMod(recipeId, NUM_SHARDS)))
+        .resolve(recipeId + ".html.gz");
+  }
+
+  // 64-bit FNV-1a: keeping the slugs themselves around would take more
+  // memory than every other startup structure combined
+  static long slugHash(String slug) {
+    var hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < slug.length(); i++) {
+      hash ^= slug.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  public static StaticRecipePages load(Path directory, String databaseId) {
+    var file = directory.resolve(INDEX_FILENAME);
+
+    if (!Files.exists(file)) {
+      logger.warn("No {} found at {}. Recipe pages will be rendered", INDEX_FILENAME, directory);
+      return DISABLED;
+    }
+
+    try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      var generation = in.readUTF();
+      var renderedFrom = in.readUTF();
+
+      if (!renderedFrom.equals(databaseId)) {
+        logger.warn(
+            "Recipe pages at {} were rendered from database {}, not {}. Ignoring them",
+            directory,
+            renderedFrom,
+            databaseId);
+        return DISABLED;
+      }
+
+      var count = in.readInt();
+
+      var sortedIds = new long[count];
+      var slugHashes = new long[count];
+      var lengths = new long[count];
+
+      for (int i = 0; i < count; i++) {
+        sortedIds[i] = in.readLong();
+        slugHashes[i] = in.readLong();
+        lengths[i] = in.readLong();
+      }
+
+      logger.info("Loaded {} static recipe pages from generation {}", count, generation);
+      return new StaticRecipePages(directory, generation, sortedIds, slugHashes, lengths);
+    } catch (IOException wrapped) {
+      throw new RuntimeException(wrapped);
+    }
+  }
+
+  // Returns the generation that was written
+  public static String generate(
+      Path directory,
+      RecipeMetadataDatabase database,
+      String databaseId,
+      SimilarSummaries similarSummaries,
+      Stream<RecipeMetadata> recipes) {
+    // Same rendering path as the server's
+    var db = new MetadataService(database, new LongKeyedCache<>(1 << 16), Schedulers.immediate());
+    var modelView = ModelView.forRecipePages(similarSummaries);
+
+    // id, slug hash and length of every page written
+    var entries = new ArrayList<long[]>();
+
+    try {
+      Files.createDirectories(directory);
+    } catch (IOException wrapped) {
+      throw new RuntimeException(wrapped);
+    }
+
+    recipes.forEach(
+        recipe -> {
+          var page = RenderedPage.of(modelView.renderSingleRecipe(recipe, db));
+          var path = pathFor(directory, recipe.getRecipeId());
+
+          try {
+            Files.createDirectories(path.getParent());
+            Files.write(path, page.getGzip());
+          } catch (IOException wrapped) {
+            throw new RuntimeException(wrapped);
+          }
+
+          entries.add(
+              new long[] {
+                recipe.getRecipeId(), slugHash(recipe.getSlug()), page.getGzip().length
+              });
+        });
+
+    entries.sort(Comparator.comparingLong(entry -> entry[0]));
+
+    var generation = UUID.randomUUID().toString();
+
+    try (var out =
+        new DataOutputStream(
+            new BufferedOutputStream(
+                Files.newOutputStream(directory.resolve(INDEX_FILENAME))))) {
+      out.writeUTF(generation);
+      out.writeUTF(databaseId);
+      out.writeInt(entries.size());
+      for (long[] entry : entries) {
+        out.writeLong(entry[0]);
+        out.writeLong(entry[1]);
+        out.writeLong(entry[2]);
+      }
+    } catch (IOException wrapped) {
+      throw new RuntimeException(wrapped);
+    }
+
+    return generation;
+  }
+
+  public static class Page {
+    private final Path path;
+    private final long contentLength;
+
+    Page(Path path, long contentLength) {
+      this.path = path;
+      this.contentLength = contentLength;
+    }
+
+    public Path getPath() {
+      return path;
+    }
+
+    public long getContentLength() {
+      return contentLength;
+    }
+
+    // Whether the file is still what the index says it is. Blocking:
+    // only to be called off the event loop
+    boolean isServable() {
+      try {
+        return Files.isReadable(path) && Files.size(path) == contentLength;
+      } catch (IOException ignored) {
+        return false;
+      }
+    }
+  }
+}
@@ -7,6 +7,7 @@ import javax.validation.constraints.Positive;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
+import org.springframework.util.unit.DataSize;
 
 @Configuration
 @PropertySource("classpath:cerberus.properties")
@@ -15,12 +16,22 @@ public class SearchConfigurationProperties {
 
   @NotNull Duration timeout;
   @NotNull @Positive int pageSize;
+  @NotNull @Positive int maxPage;
   @NotNull @Positive int cacheSize;
+  @NotNull @Positive int metadataCacheSize;
+  @NotNull @Positive int similarCacheSize;
+  @NotNull @Positive int metadataThreads;
+  @NotNull DataSize responseCacheSize;
+
+  // Optional: pages generated via `loader pages`
+  Path staticPagesDirectory;
 
   LuceneConfigurationProperties lucene;
 
   SdbConfigurationProperties sdb;
 
+  FilterCacheConfigurationProperties filterCache;
+
   public Duration getTimeout() {
     return timeout;
   }
@@ -29,10 +40,34 @@ public class SearchConfigurationProperties {
     return pageSize;
   }
 
+  public int getMaxPage() {
+    return maxPage;
+  }
+
   public int getCacheSize() {
     return cacheSize;
   }
 
+  public int getMetadataCacheSize() {
+    return metadataCacheSize;
+  }
+
+  public int getSimilarCacheSize() {
+    return similarCacheSize;
+  }
+
+  public int getMetadataThreads() {
+    return metadataThreads;
+  }
+
+  public DataSize getResponseCacheSize() {
+    return responseCacheSize;
+  }
+
+  public Path getStaticPagesDirectory() {
+    return staticPagesDirectory;
+  }
+
   public SdbConfigurationProperties getSdb() {
     return sdb;
   }
@@ -49,10 +84,38 @@ public class SearchConfigurationProperties {
     this.lucene = lucene;
   }
 
+  public FilterCacheConfigurationProperties getFilterCache() {
+    return filterCache;
+  }
+
+  public void setFilterCache(FilterCacheConfigurationProperties filterCache) {
+    this.filterCache = filterCache;
+  }
+
   public void setCacheSize(int cacheSize) {
     this.cacheSize = cacheSize;
   }
 
+  public void setMetadataCacheSize(int metadataCacheSize) {
+    this.metadataCacheSize = metadataCacheSize;
+  }
+
+  public void setSimilarCacheSize(int similarCacheSize) {
+    this.similarCacheSize = similarCacheSize;
+  }
+
+  public void setMetadataThreads(int metadataThreads) {
+    this.metadataThreads = metadataThreads;
+  }
+
+  public void setResponseCacheSize(DataSize responseCacheSize) {
+    this.responseCacheSize = responseCacheSize;
+  }
+
+  public void setStaticPagesDirectory(Path staticPagesDirectory) {
+    this.staticPagesDirectory = staticPagesDirectory;
+  }
+
   public void setTimeout(Duration duration) {
     timeout = duration;
   }
@@ -61,6 +124,10 @@ public class SearchConfigurationProperties {
     pageSize = size;
   }
 
+  public void setMaxPage(int maxPage) {
+    this.maxPage = maxPage;
+  }
+
   public static class LuceneConfigurationProperties {
 
     public void setDirectory(Path directory) {
@@ -86,4 +153,26 @@ public class SearchConfigurationProperties {
 
     @NotNull Path directory;
   }
+
+  public static class FilterCacheConfigurationProperties {
+
+    public void setMaxEntries(int maxEntries) {
+      this.maxEntries = maxEntries;
+    }
+
+    public int getMaxEntries() {
+      return maxEntries;
+    }
+
+    public void setMaxRam(DataSize maxRam) {
+      this.maxRam = maxRam;
+    }
+
+    public DataSize getMaxRam() {
+      return maxRam;
+    }
+
+    @NotNull @Positive int maxEntries;
+    @NotNull DataSize maxRam;
+  }
 }
@@ -0,0 +1,40 @@
+package co.caio.casserole.ext;
+
+import java.io.IOException;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PointRangeQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryCache;
+import org.apache.lucene.search.QueryCachingPolicy;
+import org.apache.lucene.search.UsageTrackingQueryCachingPolicy;
+
+public class CategoryFilterCachingPolicy implements QueryCachingPolicy {
+
+  // Every option a user can select on the sidebar becomes a point range
+  // filter and there are only a few dozen of those, so there's no point
+  // in waiting for the usage tracker to decide they are worth caching
+
+  private final QueryCachingPolicy delegate = new UsageTrackingQueryCachingPolicy();
+
+  // Cerberus doesn't expose the IndexSearcher instances it creates, so
+  // the only way to give them a cache is through Lucene's JVM-wide
+  // defaults, which are read when an IndexSearcher is constructed.
+  // This must run once, before any Searcher is opened
+  public static void installAsDefault(QueryCache cache) {
+    IndexSearcher.setDefaultQueryCache(cache);
+    IndexSearcher.setDefaultQueryCachingPolicy(new CategoryFilterCachingPolicy());
+  }
+
+  @Override
+  public void onUse(Query query) {
+    delegate.onUse(query);
+  }
+
+  @Override
+  public boolean shouldCache(Query query) throws IOException {
+    if (query instanceof PointRangeQuery) {
+      return true;
+    }
+    return delegate.shouldCache(query);
+  }
+}
@@ -0,0 +1,112 @@
+package co.caio.casserole.ext;
+
+import com.fizzed.rocker.ContentType;
+import com.fizzed.rocker.RockerModel;
+import com.fizzed.rocker.RockerOutput;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+
+public class DataBufferOutput implements RockerOutput<DataBufferOutput> {
+
+  // Renders straight into buffers from the response's factory, which
+  // is netty's pooled allocator when running for real. Saves us from
+  // allocating a set of heap arrays per page just to copy them over
+
+  private static final int CHUNK_SIZE = 8192;
+
+  private final ContentType contentType;
+  private final Charset charset;
+  private final DataBufferFactory factory;
+  private final List<DataBuffer> buffers = new ArrayList<>();
+
+  private DataBuffer current;
+  private int byteLength;
+
+  DataBufferOutput(ContentType contentType, String charsetName, DataBufferFactory factory) {
+    this.contentType = contentType;
+    this.charset = Charset.forName(charsetName);
+    this.factory = factory;
+  }
+
+  // The caller takes ownership of the buffers. If rendering fails the
+  // ones allocated so far are released before rethrowing
+  public static DataBufferOutput render(RockerModel model, DataBufferFactory factory) {
+    var created = new ArrayList<DataBufferOutput>(1);
+
+    try {
+      return model.render(
+          (contentType, charsetName) -> {
+            var output = new DataBufferOutput(contentType, charsetName, factory);
+            created.add(output);
+            return output;
+          });
+    } catch (RuntimeException ex) {
+      created.forEach(DataBufferOutput::release);
+      throw ex;
+    }
+  }
+
+  public List<DataBuffer> getBuffers() {
+    return buffers;
+  }
+
+  // Hands the buffers over one at a time. Each one emitted becomes the
+  // subscriber's to release; whatever it doesn't get to take (it
+  // cancelled, or failed before asking for more) is released here
+  public Flux<DataBuffer> toFlux() {
+    return Flux.generate(
+        buffers::iterator,
+        (remaining, sink) -> {
+          if (remaining.hasNext()) {
+            sink.next(remaining.next());
+          } else {
+            sink.complete();
+          }
+          return remaining;
+        },
+        remaining -> remaining.forEachRemaining(DataBufferUtils::release));
+  }
+
+  void release() {
+    buffers.forEach(DataBufferUtils::release);
+    buffers.clear();
+    current = null;
+  }
+
+  @Override
+  public ContentType getContentType() {
+    return contentType;
+  }
+
+  @Override
+  public Charset getCharset() {
+    return charset;
+  }
+
+  @Override
+  public DataBufferOutput w(String string) {
+    return w(string.getBytes(charset));
+  }
+
+  @Override
+  public DataBufferOutput w(byte[] bytes) {
+    if (current == null || current.writableByteCount() < bytes.length) {
+      current = factory.allocateBuffer(Math.max(CHUNK_SIZE, bytes.length));
+      buffers.add(current);
+    }
+
+    current.write(bytes);
+    byteLength += bytes.length;
+    return this;
+  }
+
+  @Override
+  public int getByteLength() {
+    return byteLength;
+  }
+}
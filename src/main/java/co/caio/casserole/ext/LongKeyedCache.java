@@ -0,0 +1,305 @@
+package co.caio.casserole.ext;
+
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+public class LongKeyedCache<V> {
+
+  // Recipe ids are looked up by crawlers walking the whole catalog as
+  // much as by people, so a plain LRU (or direct-mapped) cache would
+  // get flushed by every scan. Like Caffeine, this uses TinyLFU
+  // admission: a sketch estimates how often each id was used recently
+  // and a new id only gets in when it's been seen more often than the
+  // entry it would evict. Unlike Caffeine, keys live in an open
+  // addressing table of primitive longs, so nothing here boxes them.
+  //
+  // The entry to evict is the least frequent of a few sampled ones:
+  // close enough to exact LFU without keeping entries in any order.
+  // Reads are optimistic and never block; writes take the lock
+
+  private static final int SAMPLE_SIZE = 8;
+
+  private final int maximumSize;
+  private final int mask;
+  private final long[] keys;
+  // A null value marks an empty slot
+  private final Object[] values;
+  private final FrequencySketch sketch;
+  private final StampedLock lock = new StampedLock();
+
+  private volatile int size;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder puts = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  public LongKeyedCache(int maximumSize) {
+    if (maximumSize < 1 || maximumSize > 1 << 29) {
+      throw new IllegalArgumentException("maximumSize must be > 0 and <= 2^29");
+    }
+
+    this.maximumSize = maximumSize;
+
+    // At most half full, so probe sequences stay short
+    var tableSize = ceilingPowerOfTwo(maximumSize * 2);
+    this.keys = new long[tableSize];
+    this.values = new Object[tableSize];
+    this.mask = tableSize - 1;
+    this.sketch = new FrequencySketch(maximumSize);
+  }
+
+  public V getIfPresent(long key) {
+    // NOTE Increments from concurrent readers may get lost: it's an
+    //      estimate either way
+    sketch.increment(key);
+
+    var stamp = lock.tryOptimisticRead();
+    var value = find(key);
+
+    if (!lock.validate(stamp)) {
+      stamp = lock.readLock();
+      try {
+        value = find(key);
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+
+    if (value == null) {
+      misses.increment();
+    } else {
+      hits.increment();
+    }
+
+    return value;
+  }
+
+  public void put(long key, V value) {
+    Objects.requireNonNull(value);
+    puts.increment();
+
+    var stamp = lock.writeLock();
+    try {
+      sketch.increment(key);
+
+      var index = indexOf(key);
+      if (values[index] != null) {
+        values[index] = value;
+        return;
+      }
+
+      if (size < maximumSize) {
+        insertAt(index, key, value);
+        return;
+      }
+
+      // Full: either the candidate or the victim has to go
+      evictions.increment();
+
+      var victim = sampleVictim();
+      if (sketch.frequency(key) > sketch.frequency(keys[victim])) {
+        removeAt(victim);
+        // The removal may have shifted entries around
+        insertAt(indexOf(key), key, value);
+      }
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private V find(long key) {
+    var index = slot(key);
+
+    for (int probes = 0; probes <= mask; probes++) {
+      var value = values[index];
+
+      if (value == null) {
+        return null;
+      }
+
+      if (keys[index] == key) {
+        return (V) value;
+      }
+
+      index = (index + 1) & mask;
+    }
+
+    return null;
+  }
+
+  // Where the key is, or the empty slot where it would go
+  private int indexOf(long key) {
+    var index = slot(key);
+    while (values[index] != null && keys[index] != key) {
+      index = (index + 1) & mask;
+    }
+    return index;
+  }
+
+  private void insertAt(int index, long key, V value) {
+    keys[index] = key;
+    values[index] = value;
+    size++;
+  }
+
+  // Backward shift deletion: moves the entries after the removed one
+  // back into the hole when that's still on their probe sequence, so
+  // lookups never need tombstones
+  private void removeAt(int hole) {
+    var index = hole;
+
+    while (true) {
+      index = (index + 1) & mask;
+
+      if (values[index] == null) {
+        break;
+      }
+
+      var home = slot(keys[index]);
+      if (((index - home) & mask) >= ((index - hole) & mask)) {
+        keys[hole] = keys[index];
+        values[hole] = values[index];
+        hole = index;
+      }
+    }
+
+    values[hole] = null;
+    size--;
+  }
+
+  private int sampleVictim() {
+    var index = ThreadLocalRandom.current().nextInt(values.length);
+    var victim = -1;
+    var victimFrequency = Integer.MAX_VALUE;
+
+    for (int seen = 0, probes = 0; seen < SAMPLE_SIZE && probes <= mask; probes++) {
+      if (values[index] != null) {
+        seen++;
+        var frequency = sketch.frequency(keys[index]);
+        if (frequency < victimFrequency) {
+          victim = index;
+          victimFrequency = frequency;
+        }
+      }
+      index = (index + 1) & mask;
+    }
+
+    return victim;
+  }
+
+  private int slot(long key) {
+    return spread(key) & mask;
+  }
+
+  private static int spread(long key) {
+    var hash = key * 0x9E3779B97F4A7C15L;
+    return (int) (hash ^ (hash >>> 32));
+  }
+
+  private static int ceilingPowerOfTwo(int value) {
+    return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+  }
+
+  public int capacity() {
+    return maximumSize;
+  }
+
+  public long size() {
+    return size;
+  }
+
+  public long hitCount() {
+    return hits.sum();
+  }
+
+  public long missCount() {
+    return misses.sum();
+  }
+
+  public long putCount() {
+    return puts.sum();
+  }
+
+  // Entries dropped to respect the maximum size, be it the victim or
+  // the candidate that wasn't admitted
+  public long evictionCount() {
+    return evictions.sum();
+  }
+
+  // A count-min sketch of 4-bit counters, 16 per long, with four
+  // counters per key. Every counter gets halved once the number of
+  // increments reaches ten times the cache size, so that estimates
+  // follow what's popular now instead of what was popular once
+  static class FrequencySketch {
+
+    private static final long[] SEEDS = {
+      0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int maximumSize) {
+      var size = ceilingPowerOfTwo(Math.max(maximumSize, 16));
+      this.table = new long[size];
+      this.tableMask = size - 1;
+      this.sampleSize = (int) Math.min(10L * size, Integer.MAX_VALUE);
+    }
+
+    int frequency(long key) {
+      var hash = spread(key);
+      var frequency = 15;
+
+      for (int i = 0; i < 4; i++) {
+        var counter = (table[indexOf(hash, i)] >>> offsetOf(hash, i)) & 0xfL;
+        frequency = Math.min(frequency, (int) counter);
+      }
+
+      return frequency;
+    }
+
+    void increment(long key) {
+      var hash = spread(key);
+      var added = false;
+
+      for (int i = 0; i < 4; i++) {
+        var index = indexOf(hash, i);
+        var offset = offsetOf(hash, i);
+
+        // Saturates at 15
+        if (((table[index] >>> offset) & 0xfL) != 0xfL) {
+          table[index] += 1L << offset;
+          added = true;
+        }
+      }
+
+      if (added && ++additions >= sampleSize) {
+        reset();
+      }
+    }
+
+    private void reset() {
+      for (int i = 0; i < table.length; i++) {
+        table[i] = (table[i] >>> 1) & RESET_MASK;
+      }
+      additions = 0;
+    }
+
+    private int indexOf(int hash, int row) {
+      var h = (hash + SEEDS[row]) * SEEDS[row];
+      h += h >>> 32;
+      return (int) h & tableMask;
+    }
+
+    private static int offsetOf(int hash, int row) {
+      return ((hash >>> (row << 3)) & 0xf) << 2;
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package co.caio.casserole.ext;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+
+public class LongKeyedCacheMetrics extends CacheMeterBinder {
+
+  private final LongKeyedCache<?> cache;
+
+  public LongKeyedCacheMetrics(LongKeyedCache<?> cache, String cacheName, Iterable<Tag> tags) {
+    super(cache, cacheName, tags);
+    this.cache = cache;
+  }
+
+  public static <V> LongKeyedCache<V> monitor(
+      MeterRegistry registry, LongKeyedCache<V> cache, String cacheName, String... tags) {
+    new LongKeyedCacheMetrics(cache, cacheName, Tags.of(tags)).bindTo(registry);
+    return cache;
+  }
+
+  @Override
+  protected Long size() {
+    return cache.size();
+  }
+
+  @Override
+  protected long hitCount() {
+    return cache.hitCount();
+  }
+
+  @Override
+  protected Long missCount() {
+    return cache.missCount();
+  }
+
+  @Override
+  protected Long evictionCount() {
+    return cache.evictionCount();
+  }
+
+  @Override
+  protected long putCount() {
+    return cache.putCount();
+  }
+
+  @Override
+  protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+    Gauge.builder("cache.capacity", cache, LongKeyedCache::capacity)
+        .tags(getTagsWithCacheName())
+        .description("The maximum number of entries the cache can hold")
+        .register(registry);
+  }
+}
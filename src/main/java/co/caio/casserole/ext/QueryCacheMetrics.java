@@ -0,0 +1,58 @@
+package co.caio.casserole.ext;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+import org.apache.lucene.search.LRUQueryCache;
+
+public class QueryCacheMetrics extends CacheMeterBinder {
+
+  private final LRUQueryCache cache;
+
+  public QueryCacheMetrics(LRUQueryCache cache, String cacheName, Iterable<Tag> tags) {
+    super(cache, cacheName, tags);
+    this.cache = cache;
+  }
+
+  public static LRUQueryCache monitor(
+      MeterRegistry registry, LRUQueryCache cache, String cacheName, String... tags) {
+    new QueryCacheMetrics(cache, cacheName, Tags.of(tags)).bindTo(registry);
+    return cache;
+  }
+
+  @Override
+  protected Long size() {
+    return cache.getCacheSize();
+  }
+
+  @Override
+  protected long hitCount() {
+    return cache.getHitCount();
+  }
+
+  @Override
+  protected Long missCount() {
+    return cache.getMissCount();
+  }
+
+  @Override
+  protected Long evictionCount() {
+    return cache.getEvictionCount();
+  }
+
+  @Override
+  protected long putCount() {
+    return cache.getCacheCount();
+  }
+
+  @Override
+  protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+    Gauge.builder("cache.memory.used", cache, LRUQueryCache::ramBytesUsed)
+        .tags(getTagsWithCacheName())
+        .baseUnit("bytes")
+        .description("The estimated memory used by the cached doc id sets")
+        .register(registry);
+  }
+}
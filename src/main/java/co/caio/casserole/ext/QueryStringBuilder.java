@@ -0,0 +1,172 @@
+package co.caio.casserole.ext;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class QueryStringBuilder {
+
+  // A much lighter take on UriComponentsBuilder for the only thing we
+  // use it for: linking to the current uri with one parameter changed.
+  // Instances are immutable and the serialized form is computed at
+  // most once, so producing a sidebar href is a single concatenation.
+  //
+  // Parameters behave like UriComponentsBuilder.replaceQueryParam():
+  // the replaced parameter goes last, values are kept raw (as they
+  // came in the request) and an empty query string yields no '?'.
+  //
+  // Links differ in one way: only the path and query string are kept,
+  // so they're relative to the host the page was served from instead
+  // of absolute urls built from the request's scheme, host and port
+
+  private final String path;
+  private final Map<String, List<String>> params;
+
+  private String uriString;
+
+  private QueryStringBuilder(String path, Map<String, List<String>> params) {
+    this.path = path;
+    this.params = params;
+  }
+
+  public static QueryStringBuilder fromUri(URI uri) {
+    return parse(uri.getRawPath(), uri.getRawQuery());
+  }
+
+  public static QueryStringBuilder fromUriString(String uri) {
+    var idx = uri.indexOf('?');
+    return idx == -1 ? parse(uri, null) : parse(uri.substring(0, idx), uri.substring(idx + 1));
+  }
+
+  private static QueryStringBuilder parse(String path, String query) {
+    var params = new LinkedHashMap<String, List<String>>();
+
+    if (query != null) {
+      for (String pair : query.split("&")) {
+        if (pair.isEmpty()) {
+          continue;
+        }
+
+        var eq = pair.indexOf('=');
+        var name = eq == -1 ? pair : pair.substring(0, eq);
+
+        if (name.isEmpty()) {
+          continue;
+        }
+
+        // "name" has no value at all, "name=" has an empty one
+        var value = eq == -1 ? null : pair.substring(eq + 1);
+        params.computeIfAbsent(name, k -> new ArrayList<>(1)).add(value);
+      }
+    }
+
+    return new QueryStringBuilder(path == null ? "" : path, params);
+  }
+
+  public QueryStringBuilder without(String name) {
+    if (!params.containsKey(name)) {
+      return this;
+    }
+
+    var copy = new LinkedHashMap<>(params);
+    copy.remove(name);
+    return new QueryStringBuilder(path, copy);
+  }
+
+  public QueryStringBuilder with(String name, String value) {
+    var copy = new LinkedHashMap<>(params);
+    copy.remove(name);
+    copy.put(name, List.of(value));
+    return new QueryStringBuilder(path, copy);
+  }
+
+  public QueryStringBuilder onlyWith(String name, String value) {
+    return new QueryStringBuilder(path, Map.of(name, List.of(value)));
+  }
+
+  // Yields the uri with `name` set to each value given to the returned
+  // splicer, encoding every other parameter only once
+  public Splicer splicer(String name) {
+    var base = without(name);
+    return new Splicer(base.toUriString(), base.params.isEmpty() ? '?' : '&', name);
+  }
+
+  public Map<String, String> toSingleValueMap() {
+    var map = new LinkedHashMap<String, String>();
+    params.forEach((name, values) -> map.put(name, values.get(0)));
+    return map;
+  }
+
+  public String toUriString() {
+    if (uriString == null) {
+      uriString = serialize();
+    }
+
+    return uriString;
+  }
+
+  // The same uri with its parameters sorted by name (the values of a
+  // repeated one keep their order): equivalent uris yield the same
+  // builder, and so the same links, regardless of how they were written
+  public QueryStringBuilder canonical() {
+    if (params.size() < 2) {
+      return this;
+    }
+
+    var names = new ArrayList<>(params.keySet());
+    Collections.sort(names);
+
+    var sorted = new LinkedHashMap<String, List<String>>();
+    names.forEach(name -> sorted.put(name, params.get(name)));
+    return new QueryStringBuilder(path, sorted);
+  }
+
+  // For keying things by what the uri means instead of how it was written
+  public String toCanonicalString() {
+    return canonical().toUriString();
+  }
+
+  private String serialize() {
+    var sb = new StringBuilder(path);
+    var separator = '?';
+
+    for (Map.Entry<String, List<String>> param : params.entrySet()) {
+      var name = param.getKey();
+      for (String value : param.getValue()) {
+        sb.append(separator).append(name);
+        if (value != null) {
+          sb.append('=').append(value);
+        }
+        separator = '&';
+      }
+    }
+
+    return sb.toString();
+  }
+
+  @Override
+  public String toString() {
+    return toUriString();
+  }
+
+  public static class Splicer {
+    private final String base;
+    private final String prefix;
+
+    private Splicer(String base, char separator, String name) {
+      this.base = base;
+      this.prefix = base + separator + name + '=';
+    }
+
+    public String with(String value) {
+      return prefix.concat(value);
+    }
+
+    public String without() {
+      return base;
+    }
+  }
+}
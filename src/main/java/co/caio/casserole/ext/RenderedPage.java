@@ -0,0 +1,88 @@
+package co.caio.casserole.ext;
+
+import com.fizzed.rocker.RockerModel;
+import com.fizzed.rocker.runtime.ArrayOfByteArraysOutput;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+public class RenderedPage {
+
+  // A fully rendered page, kept both as is and gzipped so that serving
+  // it from memory never has to render or compress anything again
+
+  private final byte[] identity;
+  private final byte[] gzip;
+
+  private RenderedPage(byte[] identity, byte[] gzip) {
+    this.identity = identity;
+    this.gzip = gzip;
+  }
+
+  public static RenderedPage of(RockerModel model) {
+    var identity = toByteArray(model);
+    return new RenderedPage(identity, gzip(identity));
+  }
+
+  public byte[] getIdentity() {
+    return identity;
+  }
+
+  public byte[] getGzip() {
+    return gzip;
+  }
+
+  public int weight() {
+    return identity.length + gzip.length;
+  }
+
+  // Kept pages outlive the request, so they render straight to the
+  // heap: ArrayOfByteArraysOutput mostly keeps references to the
+  // template's own (static) chunks, leaving a single copy to an
+  // exact-size array. DataBufferOutput is for pages that go straight
+  // to the client and are released once written
+  public static byte[] toByteArray(RockerModel model) {
+    var output = model.render(ArrayOfByteArraysOutput.FACTORY);
+    var bytes = new byte[output.getByteLength()];
+
+    int offset = 0;
+    for (byte[] chunk : output.getArrays()) {
+      System.arraycopy(chunk, 0, bytes, offset, chunk.length);
+      offset += chunk.length;
+    }
+
+    return bytes;
+  }
+
+  // Looks for a "gzip" coding that isn't explicitly refused via q=0
+  public static boolean acceptsGzip(List<String> acceptEncoding) {
+    for (String header : acceptEncoding) {
+      for (String coding : header.split(",")) {
+        var parts = coding.split(";");
+
+        if (!parts[0].trim().equalsIgnoreCase("gzip")) {
+          continue;
+        }
+
+        if (parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?")) {
+          return true;
+        }
+      }
+    }
+
+    return false;
+  }
+
+  private static byte[] gzip(byte[] input) {
+    var bytes = new ByteArrayOutputStream(input.length / 4);
+
+    try (var out = new GZIPOutputStream(bytes)) {
+      out.write(input);
+    } catch (IOException wrapped) {
+      throw new RuntimeException(wrapped);
+    }
+
+    return bytes.toByteArray();
+  }
+}
@@ -1,23 +1,18 @@
 package co.caio.casserole.ext;
 
 import com.fizzed.rocker.RockerModel;
-import com.fizzed.rocker.runtime.ArrayOfByteArraysOutput;
 import java.util.List;
 import java.util.Map;
 import org.reactivestreams.Publisher;
 import org.springframework.core.ResolvableType;
-import org.springframework.core.io.buffer.DataBufferFactory;
-import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.MediaType;
 import org.springframework.http.ReactiveHttpOutputMessage;
 import org.springframework.http.codec.HttpMessageWriter;
-import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 public class RockerModelHttpMessageWriter implements HttpMessageWriter<RockerModel> {
 
   private static final List<MediaType> supportedMediaTypes = List.of(MediaType.TEXT_HTML);
-  private final DataBufferFactory bufferFactory = new DefaultDataBufferFactory();
 
   @Override
   public List<MediaType> getWritableMediaTypes() {
@@ -40,11 +35,10 @@ public class RockerModelHttpMessageWriter implements HttpMessageWriter<RockerMod
     return Mono.from(inputStream)
         .flatMap(
             rockerModel -> {
-              var output = rockerModel.render(ArrayOfByteArraysOutput.FACTORY);
+              var output = DataBufferOutput.render(rockerModel, message.bufferFactory());
               message.getHeaders().setContentType(MediaType.TEXT_HTML);
               message.getHeaders().setContentLength(output.getByteLength());
-              return message.writeWith(
-                  Flux.fromIterable(output.getArrays()).map(bufferFactory::wrap));
+              return message.writeWith(output.toFlux());
             });
   }
 }
@@ -0,0 +1,74 @@
+package co.caio.casserole.index;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.store.FSDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class ContentVersion {
+
+  // Identifies everything a rendered page depends on: the code (and
+  // thus the templates), the lucene index and the metadata database.
+  // None of it changes without a restart, so it's computed only once.
+  //
+  // The index is identified by its latest commits' ids, which are
+  // random: the generation is the same for every freshly built index.
+  // The database by the id the loader wrote with it. Not being able to
+  // read either is fatal: a made up version would keep validating
+  // pages across deploys that change them
+
+  private static final Logger logger = LoggerFactory.getLogger(ContentVersion.class);
+
+  private ContentVersion() {}
+
+  public static String of(String codeVersion, Path luceneDirectory, Path sdbDirectory) {
+    var parts = codeVersion + ':' + indexId(luceneDirectory) + ':' + DatabaseId.read(sdbDirectory);
+    var version =
+        UUID.nameUUIDFromBytes(parts.getBytes(StandardCharsets.UTF_8))
+            .toString()
+            .replace("-", "");
+
+    logger.info("Content version is {}", version);
+    return version;
+  }
+
+  // The id of every lucene commit under the given directory: cerberus
+  // keeps the index and its facet taxonomy apart, and a new commit in
+  // either changes what's rendered
+  static String indexId(Path luceneDirectory) {
+    var sb = new StringBuilder();
+
+    try (var paths = Files.walk(luceneDirectory, 2)) {
+      var directories = paths.filter(Files::isDirectory).sorted().collect(Collectors.toList());
+
+      for (Path path : directories) {
+        try (var directory = FSDirectory.open(path)) {
+          if (DirectoryReader.indexExists(directory)) {
+            var id = SegmentInfos.readLatestCommit(directory).getId();
+            sb.append(luceneDirectory.relativize(path))
+                .append('=')
+                .append(Base64.getEncoder().encodeToString(id))
+                .append(';');
+          }
+        }
+      }
+    } catch (IOException wrapped) {
+      throw new RuntimeException(
+          "Could not read the lucene commits at " + luceneDirectory, wrapped);
+    }
+
+    if (sb.length() == 0) {
+      throw new IllegalStateException("No lucene index found at " + luceneDirectory);
+    }
+
+    return sb.toString();
+  }
+}
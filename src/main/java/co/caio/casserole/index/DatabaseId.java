@@ -0,0 +1,43 @@
+package co.caio.casserole.index;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+public class DatabaseId {
+
+  // A random id the loader writes along with every metadata database it
+  // creates. Whatever gets derived from a database records it, so that
+  // a replaced database is noticed even when its path (and possibly
+  // even its size and timestamps) stays the same
+
+  public static final String FILENAME = "database-id";
+
+  private DatabaseId() {}
+
+  public static String write(Path directory) {
+    var id = UUID.randomUUID().toString();
+
+    try {
+      Files.writeString(directory.resolve(FILENAME), id, StandardCharsets.UTF_8);
+    } catch (IOException wrapped) {
+      throw new RuntimeException(wrapped);
+    }
+
+    return id;
+  }
+
+  public static String read(Path directory) {
+    try {
+      return Files.readString(directory.resolve(FILENAME), StandardCharsets.UTF_8).strip();
+    } catch (IOException wrapped) {
+      throw new RuntimeException(
+          "Could not read the id of the database at "
+              + directory
+              + ". Rebuild it via the loader's `database` command",
+          wrapped);
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package co.caio.casserole.index;
+
+import co.caio.casserole.index.Facet.Category;
+import co.caio.cerberus.model.SearchQuery;
+
+public class DisplayedFacets {
+
+  // Which facet counts a search page displays is decided by the query
+  // alone, so both the code building queries (to skip collecting
+  // facets nobody will see) and the sidebar (to hide meaningless
+  // counts) ask here
+
+  public static final int MAX_FACETS = 5;
+
+  private DisplayedFacets() {}
+
+  // We don't drill sideways, so the counts we'd get for a category
+  // that already has a selected option are meaningless. The nutrition
+  // categories are rendered together, so they're shown (or not) together
+  public static boolean showCounts(Category category, SearchQuery query) {
+    switch (category) {
+      case DIET:
+        return query.diet().isEmpty();
+      case NUM_INGREDIENT:
+        return query.numIngredients().isEmpty();
+      case TOTAL_TIME:
+        return query.totalTime().isEmpty();
+      case CALORIES:
+      case FAT_CONTENT:
+      case CARB_CONTENT:
+        return query.calories().isEmpty()
+            && query.fatContent().isEmpty()
+            && query.carbohydrateContent().isEmpty();
+      default:
+        return false;
+    }
+  }
+
+  public static boolean needsFacets(SearchQuery query) {
+    for (Category category : Category.values()) {
+      if (showCounts(category, query)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -142,6 +142,10 @@ public class Facet {
     public String getIndexKey() {
       return id.name().toLowerCase();
     }
+
+    SortOrder getSortOrder() {
+      return id;
+    }
   }
 
   public enum DietOption implements CategoryOption {
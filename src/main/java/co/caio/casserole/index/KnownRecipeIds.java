@@ -0,0 +1,92 @@
+package co.caio.casserole.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.LongStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class KnownRecipeIds {
+
+  // Every recipe id in the metadata database, sorted. Lets us answer
+  // requests for made up ids (bots love those) without going through
+  // the database at all. At 8 bytes per id it's small enough to keep
+  // it exact instead of reaching for a probabilistic structure
+
+  private static final Logger logger = LoggerFactory.getLogger(KnownRecipeIds.class);
+
+  public static final String FILENAME = "recipe-ids.bin";
+
+  // Used when the database was created without the id list
+  public static final KnownRecipeIds ANY = new KnownRecipeIds(null);
+
+  private final long[] sortedIds;
+
+  private KnownRecipeIds(long[] sortedIds) {
+    this.sortedIds = sortedIds;
+  }
+
+  public boolean mightExist(long recipeId) {
+    return sortedIds == null || Arrays.binarySearch(sortedIds, recipeId) >= 0;
+  }
+
+  // In ascending order
+  public LongStream ids() {
+    if (sortedIds == null) {
+      throw new IllegalStateException("The list of known recipe ids wasn't loaded");
+    }
+    return Arrays.stream(sortedIds);
+  }
+
+  public int size() {
+    return sortedIds == null ? 0 : sortedIds.length;
+  }
+
+  public static KnownRecipeIds of(long[] recipeIds) {
+    var sorted = recipeIds.clone();
+    Arrays.sort(sorted);
+    return new KnownRecipeIds(sorted);
+  }
+
+  public static void write(Path directory, long[] recipeIds) {
+    var sorted = of(recipeIds).sortedIds;
+
+    try (var out =
+        new DataOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(directory.resolve(FILENAME))))) {
+      out.writeInt(sorted.length);
+      for (long id : sorted) {
+        out.writeLong(id);
+      }
+    } catch (IOException wrapped) {
+      throw new RuntimeException(wrapped);
+    }
+  }
+
+  public static KnownRecipeIds load(Path directory) {
+    var file = directory.resolve(FILENAME);
+
+    if (!Files.exists(file)) {
+      logger.warn("No {} found at {}. Unknown recipe ids won't be filtered", FILENAME, directory);
+      return ANY;
+    }
+
+    try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      var sortedIds = new long[in.readInt()];
+      for (int i = 0; i < sortedIds.length; i++) {
+        sortedIds[i] = in.readLong();
+      }
+
+      logger.info("Loaded {} known recipe ids", sortedIds.length);
+      return new KnownRecipeIds(sortedIds);
+    } catch (IOException wrapped) {
+      throw new RuntimeException(wrapped);
+    }
+  }
+}
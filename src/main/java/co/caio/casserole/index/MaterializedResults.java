@@ -0,0 +1,202 @@
+package co.caio.casserole.index;
+
+import co.caio.casserole.index.Facet.Category;
+import co.caio.casserole.index.Facet.CategoryOption;
+import co.caio.casserole.index.Facet.SortByOption;
+import co.caio.cerberus.model.FacetData;
+import co.caio.cerberus.model.SearchQuery;
+import co.caio.cerberus.model.SearchQuery.DietSpec;
+import co.caio.cerberus.model.SearchQuery.RangedSpec;
+import co.caio.cerberus.model.SearchResult;
+import co.caio.cerberus.search.Searcher;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class MaterializedResults {
+
+  // Browsing (empty `q`) and clicking on a single sidebar option are
+  // a large share of the traffic and, since an empty fulltext matches
+  // every document, they're also the most expensive queries we run.
+  // There's a small, fixed number of them though, so we execute them
+  // all once at startup and serve from memory afterwards
+
+  private static final Logger logger = LoggerFactory.getLogger(MaterializedResults.class);
+
+  public static final MaterializedResults EMPTY = new MaterializedResults(Map.of());
+
+  private final Map<SearchQuery, SearchResult> results;
+
+  private MaterializedResults(Map<SearchQuery, SearchResult> results) {
+    this.results = results;
+  }
+
+  public Optional<SearchResult> get(SearchQuery query) {
+    return Optional.ofNullable(results.get(query));
+  }
+
+  public int size() {
+    return results.size();
+  }
+
+  // NOTE The queries built here must be equal to the ones the
+  //      SearchParameterParser builds when handling requests, else
+  //      they're never hit. MaterializedResultsTest checks that
+  public static MaterializedResults build(Searcher searcher, int pageSize) {
+    var start = System.nanoTime();
+    var results = new HashMap<SearchQuery, SearchResult>();
+    var numSearches = 0;
+
+    for (List<Selection> filter : singleOptionFilters()) {
+      var base = buildQuery(pageSize, filter);
+      var facets = computeFacets(searcher, base, filter);
+      numSearches += facets.values().stream().mapToInt(f -> f.children().size()).sum();
+
+      for (CategoryOption sort : Category.SORT.getOptions()) {
+        var selections = new ArrayList<>(filter);
+        selections.add(new Selection(Category.SORT, sort));
+
+        var query = buildQuery(pageSize, selections);
+        results.put(query, withFacets(searcher.search(query), facets));
+        numSearches++;
+      }
+    }
+
+    logger.info(
+        "Materialized {} search results with {} searches in {}ms",
+        results.size(),
+        numSearches,
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+    return new MaterializedResults(Map.copyOf(results));
+  }
+
+  private static SearchQuery buildQuery(int pageSize, List<Selection> selections) {
+    var builder =
+        new SearchQuery.Builder()
+            .fulltext("")
+            .maxResults(pageSize)
+            .maxFacets(DisplayedFacets.MAX_FACETS);
+
+    selections.forEach(selection -> selection.applyTo(builder));
+
+    var query = builder.build();
+    if (!DisplayedFacets.needsFacets(query)) {
+      return builder.maxFacets(0).build();
+    }
+
+    return query;
+  }
+
+  private static List<List<Selection>> singleOptionFilters() {
+    var filters = new ArrayList<List<Selection>>();
+
+    // No filter at all: plain browsing
+    filters.add(List.of());
+
+    for (Category category : Category.values()) {
+      if (category == Category.SORT) {
+        continue;
+      }
+
+      category.getOptions().forEach(opt -> filters.add(List.of(new Selection(category, opt))));
+    }
+
+    return filters;
+  }
+
+  private static Map<String, FacetData> computeFacets(
+      Searcher searcher, SearchQuery base, List<Selection> filter) {
+    var facets = new HashMap<String, FacetData>();
+
+    // The count for an option is the number of recipes we'd get by
+    // selecting it, so we can compute it directly from the totalHits
+    // of the query with the option added, regardless of how many
+    // documents the base query matches
+    for (Category category : Category.values()) {
+      // Only what the sidebar will display
+      if (!DisplayedFacets.showCounts(category, base)) {
+        continue;
+      }
+
+      var builder = new FacetData.Builder().dimension(category.getIndexKey());
+
+      for (CategoryOption option : category.getOptions()) {
+        var selections = new ArrayList<>(filter);
+        selections.add(new Selection(category, option));
+
+        // Only the count matters: skip collecting documents and facets
+        var query = new SearchQuery.Builder().fulltext("").maxResults(1).maxFacets(0);
+        selections.forEach(selection -> selection.applyTo(query));
+
+        builder.putChildren(option.getIndexKey(), searcher.search(query.build()).totalHits());
+      }
+
+      facets.put(category.getIndexKey(), builder.build());
+    }
+
+    return facets;
+  }
+
+  private static SearchResult withFacets(SearchResult result, Map<String, FacetData> facets) {
+    // Results small enough already have facets computed by the searcher
+    if (!result.facets().isEmpty()) {
+      return result;
+    }
+
+    var builder = new SearchResult.Builder().totalHits(result.totalHits());
+    result.recipeIds().forEach(builder::addRecipe);
+    facets.forEach(builder::putFacets);
+
+    return builder.build();
+  }
+
+  private static class Selection {
+    private final Category category;
+    private final CategoryOption option;
+
+    Selection(Category category, CategoryOption option) {
+      this.category = category;
+      this.option = option;
+    }
+
+    // Mirrors how the parser reads the option's index key
+    void applyTo(SearchQuery.Builder builder) {
+      switch (category) {
+        case SORT:
+          builder.sort(((SortByOption) option).getSortOrder());
+          break;
+        case DIET:
+          builder.diet(DietSpec.of(option.getIndexKey(), 1F));
+          break;
+        case NUM_INGREDIENT:
+          builder.numIngredients(asRange(option));
+          break;
+        case TOTAL_TIME:
+          builder.totalTime(asRange(option));
+          break;
+        case CALORIES:
+          builder.calories(asRange(option));
+          break;
+        case FAT_CONTENT:
+          builder.fatContent(asRange(option));
+          break;
+        case CARB_CONTENT:
+          builder.carbohydrateContent(asRange(option));
+          break;
+      }
+    }
+
+    // CategoryRange is a RangedSpec, but an enum is never equal to
+    // the immutable instances the parser creates
+    private static RangedSpec asRange(CategoryOption option) {
+      var range = (RangedSpec) option;
+      return RangedSpec.of(range.start(), range.end());
+    }
+  }
+}
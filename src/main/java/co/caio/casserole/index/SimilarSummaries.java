@@ -0,0 +1,257 @@
+package co.caio.casserole.index;
+
+import co.caio.cerberus.db.RecipeMetadata;
+import co.caio.cerberus.db.RecipeMetadataDatabase;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class SimilarSummaries {
+
+  // A recipe page lists (up to) 20 similar recipes, but only needs their
+  // names, sites and urls. The loader resolves them once and writes
+  // every recipe's list as a single record next to the metadata
+  // database, so rendering a recipe costs one metadata lookup plus one
+  // read here instead of 1 + 20 lookups.
+  //
+  // Layout: the records, sorted by recipe id, then the index (the sorted
+  // ids followed by each record's start offset, plus the end of the last
+  // one) and finally the index's offset and its number of entries. Only
+  // the index is kept in memory; records are read on demand from a
+  // read-only mapping of the file. Unlike reading from a FileChannel,
+  // that's not interruptible: a request cancelled mid-read (which
+  // interrupts its thread) can't close the file for everyone else
+
+  private static final Logger logger = LoggerFactory.getLogger(SimilarSummaries.class);
+
+  public static final String FILENAME = "similar-summaries.bin";
+
+  // Used when the database was created without the summaries
+  public static final SimilarSummaries NONE = new SimilarSummaries(null, null, null);
+
+  private static final int FOOTER_SIZE = Long.BYTES + Integer.BYTES;
+
+  // A single mapping can't go over 2GB
+  private static final int CHUNK_SIZE = 1 << 30;
+
+  private final ByteBuffer[] chunks;
+  private final long[] sortedIds;
+  private final long[] offsets;
+
+  private SimilarSummaries(ByteBuffer[] chunks, long[] sortedIds, long[] offsets) {
+    this.chunks = chunks;
+    this.sortedIds = sortedIds;
+    this.offsets = offsets;
+  }
+
+  // Empty when the recipe isn't known, so callers can resolve the
+  // similar recipes themselves
+  public Optional<List<Summary>> find(long recipeId) {
+    if (sortedIds == null) {
+      return Optional.empty();
+    }
+
+    var idx = Arrays.binarySearch(sortedIds, recipeId);
+    if (idx < 0) {
+      return Optional.empty();
+    }
+
+    var record = new byte[(int) (offsets[idx + 1] - offsets[idx])];
+    read(offsets[idx], record);
+
+    try {
+      return Optional.of(decode(record));
+    } catch (IOException wrapped) {
+      throw new RuntimeException(wrapped);
+    }
+  }
+
+  // Records may straddle two chunks
+  private void read(long position, byte[] destination) {
+    var copied = 0;
+
+    while (copied < destination.length) {
+      var chunk = chunks[(int) (position / CHUNK_SIZE)].duplicate();
+      chunk.position((int) (position % CHUNK_SIZE));
+
+      var length = Math.min(chunk.remaining(), destination.length - copied);
+      chunk.get(destination, copied, length);
+
+      copied += length;
+      position += length;
+    }
+  }
+
+  public int size() {
+    return sortedIds == null ? 0 : sortedIds.length;
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new EOFException();
+      }
+    }
+  }
+
+  public static void write(Path directory, RecipeMetadataDatabase database, long[] recipeIds) {
+    var sortedIds = recipeIds.clone();
+    Arrays.sort(sortedIds);
+
+    var offsets = new long[sortedIds.length + 1];
+    var record = new ByteArrayOutputStream();
+
+    try (var out =
+        new DataOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(directory.resolve(FILENAME))))) {
+      long position = 0;
+
+      for (int i = 0; i < sortedIds.length; i++) {
+        offsets[i] = position;
+
+        var similar =
+            database
+                .findById(sortedIds[i])
+                .map(RecipeMetadata::getSimilarRecipeIds)
+                .orElse(List.of())
+                .stream()
+                .map(database::findById)
+                .flatMap(Optional::stream)
+                .collect(Collectors.toList());
+
+        record.reset();
+        encode(new DataOutputStream(record), similar);
+        record.writeTo(out);
+        position += record.size();
+      }
+
+      offsets[sortedIds.length] = position;
+
+      for (long id : sortedIds) {
+        out.writeLong(id);
+      }
+      for (long offset : offsets) {
+        out.writeLong(offset);
+      }
+
+      out.writeLong(position);
+      out.writeInt(sortedIds.length);
+    } catch (IOException wrapped) {
+      throw new RuntimeException(wrapped);
+    }
+  }
+
+  public static SimilarSummaries load(Path directory) {
+    var file = directory.resolve(FILENAME);
+
+    if (!Files.exists(file)) {
+      logger.warn("No {} found at {}. Similar recipes will be looked up", FILENAME, directory);
+      return NONE;
+    }
+
+    try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      var footer = ByteBuffer.allocate(FOOTER_SIZE);
+      readFully(channel, footer, channel.size() - FOOTER_SIZE);
+      footer.flip();
+
+      var indexStart = footer.getLong();
+      var numRecipes = footer.getInt();
+
+      var index = ByteBuffer.allocate((2 * numRecipes + 1) * Long.BYTES);
+      readFully(channel, index, indexStart);
+      index.flip();
+
+      var sortedIds = new long[numRecipes];
+      index.asLongBuffer().get(sortedIds);
+      index.position(numRecipes * Long.BYTES);
+
+      var offsets = new long[numRecipes + 1];
+      index.asLongBuffer().get(offsets);
+
+      // Only the records: the index is on the heap already. Mappings
+      // outlive the channel they were created from
+      var chunks = new ByteBuffer[(int) ((indexStart + CHUNK_SIZE - 1) / CHUNK_SIZE)];
+      for (int i = 0; i < chunks.length; i++) {
+        long start = (long) i * CHUNK_SIZE;
+        chunks[i] =
+            channel.map(MapMode.READ_ONLY, start, Math.min(CHUNK_SIZE, indexStart - start));
+      }
+
+      logger.info("Loaded the similar recipe summaries of {} recipes", numRecipes);
+      return new SimilarSummaries(chunks, sortedIds, offsets);
+    } catch (IOException wrapped) {
+      throw new RuntimeException(wrapped);
+    }
+  }
+
+  private static void encode(DataOutputStream out, List<RecipeMetadata> similar)
+      throws IOException {
+    out.writeShort(similar.size());
+    for (RecipeMetadata recipe : similar) {
+      out.writeLong(recipe.getRecipeId());
+      out.writeUTF(recipe.getName());
+      out.writeUTF(recipe.getSiteName());
+      out.writeUTF(recipe.getSlug());
+    }
+  }
+
+  private static List<Summary> decode(byte[] record) throws IOException {
+    var in = new DataInputStream(new ByteArrayInputStream(record));
+    var numSimilar = in.readUnsignedShort();
+
+    var summaries = new ArrayList<Summary>(numSimilar);
+    for (int i = 0; i < numSimilar; i++) {
+      summaries.add(new Summary(in.readLong(), in.readUTF(), in.readUTF(), in.readUTF()));
+    }
+
+    return summaries;
+  }
+
+  public static class Summary {
+    private final long recipeId;
+    private final String name;
+    private final String siteName;
+    private final String slug;
+
+    Summary(long recipeId, String name, String siteName, String slug) {
+      this.recipeId = recipeId;
+      this.name = name;
+      this.siteName = siteName;
+      this.slug = slug;
+    }
+
+    public long getRecipeId() {
+      return recipeId;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public String getSiteName() {
+      return siteName;
+    }
+
+    public String getSlug() {
+      return slug;
+    }
+  }
+}
@@ -1,20 +1,103 @@
 package co.caio.casserole.service;
 
+import co.caio.casserole.ext.LongKeyedCache;
 import co.caio.cerberus.db.RecipeMetadata;
 import co.caio.cerberus.db.RecipeMetadataDatabase;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
 @Service
 public class MetadataService {
 
   private final RecipeMetadataDatabase metadataDatabase;
+  private final LongKeyedCache<RecipeMetadata> cache;
+  private final Scheduler scheduler;
 
-  public MetadataService(RecipeMetadataDatabase metadataDatabase) {
+  public MetadataService(
+      RecipeMetadataDatabase metadataDatabase,
+      LongKeyedCache<RecipeMetadata> cache,
+      @Qualifier("metadataScheduler") Scheduler scheduler) {
     this.metadataDatabase = metadataDatabase;
+    this.cache = cache;
+    this.scheduler = scheduler;
+  }
+
+  // Reading from the database may block on disk, so it happens on a
+  // bounded scheduler instead of whatever thread subscribes (likely
+  // a netty event loop). Completes empty when the recipe isn't found
+  public Mono<RecipeMetadata> fetchById(long recipeId) {
+    return Mono.fromCallable(() -> findById(recipeId).orElse(null)).subscribeOn(scheduler);
+  }
+
+  // Same as findByIds, on the same scheduler as fetchById
+  public Mono<List<RecipeMetadata>> fetchByIds(List<Long> recipeIds) {
+    var ids = recipeIds.stream().mapToLong(Long::longValue).toArray();
+    return Mono.fromCallable(() -> findByIds(ids)).subscribeOn(scheduler);
   }
 
   public Optional<RecipeMetadata> findById(long recipeId) {
-    return metadataDatabase.findById(recipeId);
+    var cached = cache.getIfPresent(recipeId);
+
+    if (cached != null) {
+      return Optional.of(cached);
+    }
+
+    var found = metadataDatabase.findById(recipeId);
+    found.ifPresent(recipe -> cache.put(recipeId, recipe));
+    return found;
+  }
+
+  // Returns the recipes found, in the same order as the given ids
+  public List<RecipeMetadata> findByIds(long[] recipeIds) {
+    var found = new RecipeMetadata[recipeIds.length];
+    var missing = new long[recipeIds.length];
+
+    int numMissing = 0;
+    for (int i = 0; i < recipeIds.length; i++) {
+      found[i] = cache.getIfPresent(recipeIds[i]);
+      if (found[i] == null) {
+        missing[numMissing++] = recipeIds[i];
+      }
+    }
+
+    if (numMissing > 0) {
+      // Reading in id order keeps accesses to the storage close
+      // together instead of jumping around for every page rendered
+      var sorted = Arrays.copyOf(missing, numMissing);
+      Arrays.sort(sorted);
+
+      var fetched = new RecipeMetadata[sorted.length];
+      for (int i = 0; i < sorted.length; i++) {
+        if (i > 0 && sorted[i] == sorted[i - 1]) {
+          fetched[i] = fetched[i - 1];
+        } else {
+          fetched[i] = metadataDatabase.findById(sorted[i]).orElse(null);
+          if (fetched[i] != null) {
+            cache.put(sorted[i], fetched[i]);
+          }
+        }
+      }
+
+      for (int i = 0; i < recipeIds.length; i++) {
+        if (found[i] == null) {
+          found[i] = fetched[Arrays.binarySearch(sorted, recipeIds[i])];
+        }
+      }
+    }
+
+    var result = new ArrayList<RecipeMetadata>(recipeIds.length);
+    for (RecipeMetadata recipe : found) {
+      if (recipe != null) {
+        result.add(recipe);
+      }
+    }
+
+    return result;
   }
 }
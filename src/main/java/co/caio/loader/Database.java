@@ -1,10 +1,14 @@
 package co.caio.loader;
 
+import co.caio.casserole.index.DatabaseId;
+import co.caio.casserole.index.KnownRecipeIds;
+import co.caio.casserole.index.SimilarSummaries;
 import co.caio.cerberus.db.RecipeMetadata;
 import co.caio.cerberus.db.SimpleRecipeMetadataDatabase;
 import co.caio.loader.converter.NonExistingPath;
 import co.caio.loader.mixin.Source;
 import java.nio.file.Path;
+import java.util.stream.LongStream;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Mixin;
 import picocli.CommandLine.Parameters;
@@ -27,16 +31,36 @@ public class Database implements Runnable {
     System.out.println("Creating database at " + destination);
 
     var writer = new SimpleRecipeMetadataDatabase.Writer(destination);
+    var recipeIds = LongStream.builder();
 
     Flux.fromStream(source.recipes().map(RecipeMetadata::fromRecipe))
         .buffer(100_000)
         .subscribe(
             recipes -> {
               System.out.println("Writing a batch of " + recipes.size() + " recipes");
-              recipes.forEach(writer::addRecipe);
+              recipes.forEach(
+                  recipe -> {
+                    writer.addRecipe(recipe);
+                    recipeIds.add(recipe.getRecipeId());
+                  });
             });
 
     writer.close();
+
+    var ids = recipeIds.build().toArray();
+
+    System.out.println("Writing the list of known recipe ids");
+    KnownRecipeIds.write(destination, ids);
+
+    // Needs every recipe in the database: similar ids can point forward
+    System.out.println("Writing the similar recipe summaries");
+    try (var database = new SimpleRecipeMetadataDatabase(destination)) {
+      SimilarSummaries.write(destination, database, ids);
+    }
+
+    // Last, so that an interrupted run doesn't look like a usable database
+    System.out.println("Database id is " + DatabaseId.write(destination));
+
     System.out.println("Finished creating database");
   }
 }
@@ -0,0 +1,72 @@
+package co.caio.loader;
+
+import co.caio.casserole.component.StaticRecipePages;
+import co.caio.casserole.index.DatabaseId;
+import co.caio.casserole.index.KnownRecipeIds;
+import co.caio.casserole.index.SimilarSummaries;
+import co.caio.cerberus.db.SimpleRecipeMetadataDatabase;
+import co.caio.loader.converter.NonExistingPath;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+@Command(name = "pages")
+public class Pages implements Runnable {
+
+  @Option(
+      names = {"-d", "--database"},
+      description = "Path to existing metadata database (built via the `database` command)",
+      required = true)
+  private Path database;
+
+  @Parameters(
+      index = "0",
+      description = "Base directory to store the rendered recipe pages",
+      converter = NonExistingPath.class)
+  private Path destination;
+
+  @Override
+  public void run() {
+
+    System.out.println("Rendering recipe pages at " + destination);
+
+    var databaseId = DatabaseId.read(database);
+    var knownIds = KnownRecipeIds.load(database);
+
+    if (knownIds == KnownRecipeIds.ANY) {
+      throw new IllegalStateException(
+          "Missing " + KnownRecipeIds.FILENAME + ". Rebuild the database via `database`");
+    }
+
+    var similarSummaries = SimilarSummaries.load(database);
+    var total = new AtomicInteger(0);
+
+    String generation;
+    // Pages are rendered from what the server will actually read,
+    // not from the (possibly since changed) source recipes
+    try (var db = new SimpleRecipeMetadataDatabase(database)) {
+      generation =
+          StaticRecipePages.generate(
+              destination,
+              db,
+              databaseId,
+              similarSummaries,
+              knownIds
+                  .ids()
+                  .mapToObj(db::findById)
+                  .flatMap(Optional::stream)
+                  .peek(
+                      recipe -> {
+                        if (total.addAndGet(1) % 100_000 == 0) {
+                          System.out.println("Rendered " + total.get() + " recipes");
+                        }
+                      }));
+    }
+
+    System.out.println(
+        "Finished rendering " + total.get() + " recipes. Generation: " + generation);
+  }
+}
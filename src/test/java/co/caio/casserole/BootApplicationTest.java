@@ -2,10 +2,17 @@ package co.caio.casserole;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.times;
 
 import co.caio.casserole.TermQueryRewritingPolicy.PolicyException;
 import co.caio.casserole.component.SearchParameterParser.SearchParameterException;
+import co.caio.casserole.component.StaticRecipePages;
+import co.caio.casserole.index.KnownRecipeIds;
+import co.caio.casserole.index.MaterializedResults;
+import co.caio.casserole.index.SimilarSummaries;
 import co.caio.casserole.service.MetadataService;
 import co.caio.cerberus.db.HashMapRecipeMetadataDatabase;
 import co.caio.cerberus.db.RecipeMetadata;
@@ -14,10 +21,14 @@ import co.caio.cerberus.model.Recipe;
 import co.caio.cerberus.model.SearchResult;
 import co.caio.cerberus.search.Searcher;
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.time.Duration;
 import java.util.List;
-import java.util.Optional;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.junit.jupiter.api.BeforeEach;
@@ -34,12 +45,14 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
 
 @SpringBootTest
 @AutoConfigureWebTestClient
 class BootApplicationTest {
   @Autowired WebTestClient testClient;
   @Autowired CircuitBreaker breaker;
+  @Autowired MeterRegistry registry;
 
   @MockBean MetadataService metadataService;
   @MockBean Searcher searcher;
@@ -52,10 +65,46 @@ class BootApplicationTest {
       return Duration.ofMillis(100);
     }
 
+    @Bean("contentVersion")
+    String contentVersion() {
+      // There's neither an index nor a database to identify
+      return "test";
+    }
+
     @Bean
     RecipeMetadataDatabase getMetadataDb() {
       return new HashMapRecipeMetadataDatabase();
     }
+
+    @Bean
+    MaterializedResults materializedResults() {
+      // The searcher is a mock, nothing to materialize
+      return MaterializedResults.EMPTY;
+    }
+
+    @Bean
+    KnownRecipeIds knownRecipeIds() {
+      // Existence is decided by the metadataService mock
+      return KnownRecipeIds.ANY;
+    }
+
+    @Bean
+    SimilarSummaries similarSummaries() {
+      return SimilarSummaries.NONE;
+    }
+
+    @Bean
+    StaticRecipePages staticRecipePages() throws IOException {
+      // A single pre-rendered page, for a recipe the metadataService
+      // mock doesn't know about: only the static page can serve it
+      var recipe = RecipeMetadata.fromRecipe(getStaticRecipe());
+      var db = new HashMapRecipeMetadataDatabase();
+      db.saveAll(List.of(recipe));
+
+      var directory = Files.createTempDirectory("static-pages-");
+      StaticRecipePages.generate(directory, db, "test", SimilarSummaries.NONE, Stream.of(recipe));
+      return StaticRecipePages.load(directory, "test");
+    }
   }
 
   @BeforeEach
@@ -63,6 +112,12 @@ class BootApplicationTest {
     breaker.reset();
   }
 
+  @BeforeEach
+  void unknownRecipesAreNotFound() {
+    given(metadataService.fetchById(anyLong())).willReturn(Mono.empty());
+    given(metadataService.fetchByIds(any())).willReturn(Mono.just(List.of()));
+  }
+
   @Test
   void badInputTriggersError400() {
     var badQueries =
@@ -81,6 +136,29 @@ class BootApplicationTest {
     }
   }
 
+  @Test
+  void errorsEchoingInputAreNotCached() {
+    var errorCacheSize = registry.get("cache.size").tag("cache", "error").gauge();
+    var sizeBefore = errorCacheSize.value();
+
+    for (int i = 0; i < 50; i++) {
+      var body =
+          testClient
+              .get()
+              .uri("/search?unknown" + i + "=1")
+              .exchange()
+              .expectStatus()
+              .isEqualTo(HttpStatus.BAD_REQUEST)
+              .expectBody(String.class)
+              .returnResult()
+              .getResponseBody();
+      assertNotNull(body);
+      assertTrue(body.contains("unknown" + i));
+    }
+
+    assertEquals(sizeBefore, errorCacheSize.value());
+  }
+
   @Test
   void circuitOpensAfterManyErrors() {
     given(searcher.search(any())).willThrow(SearchParameterException.class);
@@ -180,8 +258,8 @@ class BootApplicationTest {
   @Test
   void recipeEndpointWorks() {
     var basic = getBasicRecipe();
-    given(metadataService.findById(basic.recipeId()))
-        .willReturn(Optional.of(RecipeMetadata.fromRecipe(basic)));
+    given(metadataService.fetchById(basic.recipeId()))
+        .willReturn(Mono.just(RecipeMetadata.fromRecipe(basic)));
 
     var body =
         testClient
@@ -223,6 +301,34 @@ class BootApplicationTest {
             HttpHeaders.CACHE_CONTROL, CacheControl.maxAge(3, TimeUnit.DAYS).getHeaderValue());
   }
 
+  @Test
+  void staticAssetsSupportConditionalGet() {
+    for (String uri : List.of("/css/main.css", "/page/about", "/img/logo16.png")) {
+      var etag =
+          testClient
+              .get()
+              .uri(uri)
+              .exchange()
+              .expectStatus()
+              .isEqualTo(HttpStatus.OK)
+              .returnResult(String.class)
+              .getResponseHeaders()
+              .getETag();
+      assertNotNull(etag, uri);
+
+      testClient
+          .get()
+          .uri(uri)
+          .header(HttpHeaders.IF_NONE_MATCH, etag)
+          .exchange()
+          .expectStatus()
+          .isEqualTo(HttpStatus.NOT_MODIFIED)
+          .expectHeader()
+          .valueEquals(
+              HttpHeaders.CACHE_CONTROL, CacheControl.maxAge(3, TimeUnit.DAYS).getHeaderValue());
+    }
+  }
+
   @Test
   void canFetchFavicon() {
     assertGet("/img/logo32.png", HttpStatus.OK, new MediaType("image", "png"));
@@ -232,8 +338,8 @@ class BootApplicationTest {
   @Test
   void badRecipeURLYields404() {
     var basic = getBasicRecipe();
-    given(metadataService.findById(basic.recipeId()))
-        .willReturn(Optional.of(RecipeMetadata.fromRecipe(basic)));
+    given(metadataService.fetchById(basic.recipeId()))
+        .willReturn(Mono.just(RecipeMetadata.fromRecipe(basic)));
     // Make sure the correct uri works
     assertGet("/recipe/" + basic.slug() + "/" + basic.recipeId(), HttpStatus.OK);
     // But wrong slug 404s
@@ -285,8 +391,8 @@ class BootApplicationTest {
     var basic = getBasicRecipe();
     var validUri = "/recipe/" + basic.slug() + "/" + basic.recipeId();
 
-    given(metadataService.findById(basic.recipeId()))
-        .willReturn(Optional.of(RecipeMetadata.fromRecipe(basic)));
+    given(metadataService.fetchById(basic.recipeId()))
+        .willReturn(Mono.just(RecipeMetadata.fromRecipe(basic)));
 
     assertHead("/recipe/", HttpStatus.NOT_FOUND);
     assertHead("/recipe/wrongslug", HttpStatus.NOT_FOUND);
@@ -298,6 +404,114 @@ class BootApplicationTest {
     assertHead(validUri, HttpStatus.OK);
   }
 
+  @Test
+  void searchPageLinksArePathRelative() {
+    given(searcher.search(any())).willReturn(new SearchResult.Builder().totalHits(100).build());
+
+    var body =
+        testClient
+            .get()
+            .uri("/search?q=links")
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody(String.class)
+            .returnResult()
+            .getResponseBody();
+    assertNotNull(body);
+
+    var links =
+        Jsoup.parse(body)
+            .select("a[href]")
+            .eachAttr("href")
+            .stream()
+            .filter(href -> href.contains("q=links"))
+            .collect(Collectors.toList());
+    assertFalse(links.isEmpty());
+    // Sidebar and pagination links carry no scheme nor host
+    links.forEach(href -> assertTrue(href.startsWith("/search?"), href));
+  }
+
+  @Test
+  void searchHeadFailsLikeGet() {
+    given(searcher.search(any())).willThrow(RuntimeException.class);
+    assertHead("/search?q=head", HttpStatus.INTERNAL_SERVER_ERROR);
+    assertHead("/search?q=head&sort=random", HttpStatus.BAD_REQUEST);
+
+    given(searcher.search(any())).willReturn(new SearchResult.Builder().totalHits(5).build());
+    assertHead("/search?q=overpaginated&page=3", HttpStatus.BAD_REQUEST);
+    assertHead("/search?q=overpaginated", HttpStatus.OK);
+  }
+
+  @Test
+  void searchHeadResultsAreReusedByGet() {
+    given(searcher.search(any())).willReturn(new SearchResult.Builder().totalHits(1).build());
+    var uri = "/search?q=head+then+get";
+
+    assertHead(uri, HttpStatus.OK);
+    assertGet(uri, HttpStatus.OK);
+
+    // GET only had to render
+    then(searcher).should(times(1)).search(any());
+  }
+
+  @Test
+  void staticRecipePagesHeadMatchesGet() {
+    var recipe = getStaticRecipe();
+    var uri = "/recipe/" + recipe.slug() + "/" + recipe.recipeId();
+
+    var result =
+        testClient
+            .get()
+            .uri(uri)
+            .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+            .exchange()
+            .expectStatus()
+            .isEqualTo(HttpStatus.OK)
+            .expectHeader()
+            .valueEquals(HttpHeaders.CONTENT_ENCODING, "gzip")
+            .expectBody(byte[].class)
+            .returnResult();
+
+    var etag = result.getResponseHeaders().getETag();
+    var body = result.getResponseBody();
+    assertNotNull(etag);
+    assertNotNull(body);
+
+    testClient
+        .head()
+        .uri(uri)
+        .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+        .exchange()
+        .expectStatus()
+        .isEqualTo(HttpStatus.OK)
+        .expectHeader()
+        .valueEquals(HttpHeaders.CONTENT_ENCODING, "gzip")
+        .expectHeader()
+        .valueEquals(HttpHeaders.ETAG, etag)
+        .expectHeader()
+        .contentLength(body.length);
+
+    testClient
+        .head()
+        .uri(uri)
+        .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+        .header(HttpHeaders.IF_NONE_MATCH, etag)
+        .exchange()
+        .expectStatus()
+        .isEqualTo(HttpStatus.NOT_MODIFIED);
+
+    // Clients that can't gunzip get the dynamic page, which the
+    // metadataService mock doesn't know about
+    testClient
+        .head()
+        .uri(uri)
+        .header(HttpHeaders.ACCEPT_ENCODING, "identity")
+        .exchange()
+        .expectStatus()
+        .isEqualTo(HttpStatus.NOT_FOUND);
+  }
+
   @Test
   void smallOrEmptyQueryWorks() {
     given(searcher.search(any())).willReturn(new SearchResult.Builder().build());
@@ -310,6 +524,160 @@ class BootApplicationTest {
         });
   }
 
+  @Test
+  void renderedPagesAreServedPrecompressed() {
+    given(searcher.search(any())).willReturn(new SearchResult.Builder().build());
+    var uri = "/search?q=precompressed";
+
+    testClient
+        .get()
+        .uri(uri)
+        .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+        .exchange()
+        .expectStatus()
+        .isEqualTo(HttpStatus.OK)
+        .expectHeader()
+        .valueEquals(HttpHeaders.CONTENT_ENCODING, "gzip");
+
+    // Same page, now from the cache, for a client that can't gunzip
+    testClient
+        .get()
+        .uri(uri)
+        .header(HttpHeaders.ACCEPT_ENCODING, "identity")
+        .exchange()
+        .expectStatus()
+        .isEqualTo(HttpStatus.OK)
+        .expectHeader()
+        .doesNotExist(HttpHeaders.CONTENT_ENCODING);
+  }
+
+  @Test
+  void conditionalGetYields304() {
+    var basic = getBasicRecipe();
+    given(metadataService.fetchById(basic.recipeId()))
+        .willReturn(Mono.just(RecipeMetadata.fromRecipe(basic)));
+    var uri = "/recipe/" + basic.slug() + "/" + basic.recipeId();
+
+    var etag =
+        testClient
+            .get()
+            .uri(uri)
+            .exchange()
+            .expectStatus()
+            .isEqualTo(HttpStatus.OK)
+            .returnResult(String.class)
+            .getResponseHeaders()
+            .getETag();
+    assertNotNull(etag);
+
+    testClient
+        .get()
+        .uri(uri)
+        .header(HttpHeaders.IF_NONE_MATCH, etag)
+        .exchange()
+        .expectStatus()
+        .isEqualTo(HttpStatus.NOT_MODIFIED)
+        .expectBody()
+        .isEmpty();
+
+    // The gzipped representation has a tag of its own
+    testClient
+        .get()
+        .uri(uri)
+        .header(HttpHeaders.IF_NONE_MATCH, etag)
+        .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+        .exchange()
+        .expectStatus()
+        .isEqualTo(HttpStatus.OK);
+  }
+
+  @Test
+  void conditionalRequestsAreValidatedFirst() {
+    var basic = getBasicRecipe();
+    given(metadataService.fetchById(basic.recipeId()))
+        .willReturn(Mono.just(RecipeMetadata.fromRecipe(basic)));
+
+    var invalid =
+        List.of(
+            "/search?q=oil&sort=random",
+            "/recipe/" + basic.slug() + "/" + (basic.recipeId() + 1),
+            "/recipe/wrongslug/" + basic.recipeId(),
+            "/recipe/" + basic.slug() + "/wrongid");
+
+    for (String uri : invalid) {
+      testClient
+          .get()
+          .uri(uri)
+          .header(HttpHeaders.IF_NONE_MATCH, "*")
+          .exchange()
+          .expectStatus()
+          .value(status -> assertTrue(status == 400 || status == 404, uri));
+      testClient
+          .head()
+          .uri(uri)
+          .header(HttpHeaders.IF_NONE_MATCH, "*")
+          .exchange()
+          .expectStatus()
+          .value(status -> assertTrue(status == 400 || status == 404, uri));
+    }
+
+    // But `*` does match pages that exist
+    testClient
+        .get()
+        .uri("/recipe/" + basic.slug() + "/" + basic.recipeId())
+        .header(HttpHeaders.IF_NONE_MATCH, "*")
+        .exchange()
+        .expectStatus()
+        .isEqualTo(HttpStatus.NOT_MODIFIED);
+  }
+
+  @Test
+  void etagsAreSpecificToTheUri() {
+    given(searcher.search(any())).willReturn(new SearchResult.Builder().build());
+
+    var etag =
+        testClient
+            .get()
+            .uri("/search?q=etag&sort=calories")
+            .exchange()
+            .expectStatus()
+            .isEqualTo(HttpStatus.OK)
+            .returnResult(String.class)
+            .getResponseHeaders()
+            .getETag();
+    assertNotNull(etag);
+
+    // Same page, parameters in a different order
+    testClient
+        .get()
+        .uri("/search?sort=calories&q=etag")
+        .header(HttpHeaders.IF_NONE_MATCH, etag)
+        .exchange()
+        .expectStatus()
+        .isEqualTo(HttpStatus.NOT_MODIFIED);
+
+    // A different page
+    testClient
+        .get()
+        .uri("/search?q=etag&sort=total_time")
+        .header(HttpHeaders.IF_NONE_MATCH, etag)
+        .exchange()
+        .expectStatus()
+        .isEqualTo(HttpStatus.OK);
+  }
+
+  static Recipe getStaticRecipe() {
+    return new Recipe.Builder()
+        .recipeId(2)
+        .name("static")
+        .siteName("site")
+        .slug("static-slug")
+        .crawlUrl("url")
+        .addIngredients("egg")
+        .addInstructions("eat")
+        .build();
+  }
+
   static Recipe getBasicRecipe() {
     return new Recipe.Builder()
         .recipeId(1)
@@ -0,0 +1,77 @@
+package co.caio.casserole;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import co.caio.casserole.component.SearchParameterParser;
+import co.caio.casserole.ext.CategoryFilterCachingPolicy;
+import co.caio.casserole.index.Facet;
+import co.caio.cerberus.Util;
+import co.caio.cerberus.search.Indexer;
+import co.caio.cerberus.search.Searcher;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import org.apache.lucene.document.FloatPoint;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LRUQueryCache;
+import org.apache.lucene.search.TermQuery;
+import org.junit.jupiter.api.Test;
+
+class CategoryFilterCachingPolicyTest {
+
+  @Test
+  void rangeFiltersAreCachedRightAway() throws IOException {
+    var policy = new CategoryFilterCachingPolicy();
+    assertTrue(policy.shouldCache(IntPoint.newRangeQuery("FIELD", 0, 15)));
+    assertTrue(policy.shouldCache(FloatPoint.newRangeQuery("FIELD", 1f, Float.MAX_VALUE)));
+  }
+
+  @Test
+  void otherQueriesNeedToBeUsedFirst() throws IOException {
+    var policy = new CategoryFilterCachingPolicy();
+    assertFalse(policy.shouldCache(new TermQuery(new Term("FIELD", "value"))));
+  }
+
+  @Test
+  void sidebarFiltersHitTheCacheThroughCerberus() throws IOException {
+    var dataDir = Files.createTempDirectory("filter-cache-");
+    var indexer = Indexer.Factory.open(dataDir, new Facet().getCategoryExtractor());
+    Util.getSampleRecipes()
+        .forEach(
+            recipe -> {
+              try {
+                indexer.addRecipe(recipe);
+              } catch (IOException wrapped) {
+                throw new RuntimeException(wrapped);
+              }
+            });
+    indexer.commit();
+
+    var previousCache = IndexSearcher.getDefaultQueryCache();
+    var previousPolicy = IndexSearcher.getDefaultQueryCachingPolicy();
+
+    // The default predicate skips segments as small as the test index's
+    var cache = new LRUQueryCache(100, 1 << 20, leaf -> true);
+
+    try {
+      CategoryFilterCachingPolicy.installAsDefault(cache);
+
+      var searcher = Searcher.Factory.open(dataDir, new TermQueryRewritingPolicy(200_000));
+      var query = new SearchParameterParser(10, 30).buildQuery(Map.of("ni", "0,5", "tt", "0,15"));
+
+      var first = searcher.search(query);
+      assertEquals(0, cache.getHitCount());
+
+      // LRUQueryCache only caches clauses that don't score, so getting
+      // hits means cerberus adds the sidebar options as FILTER clauses
+      assertEquals(first, searcher.search(query));
+      assertTrue(cache.getCacheCount() > 0);
+      assertTrue(cache.getHitCount() > 0);
+    } finally {
+      IndexSearcher.setDefaultQueryCache(previousCache);
+      IndexSearcher.setDefaultQueryCachingPolicy(previousPolicy);
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package co.caio.casserole;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import co.caio.casserole.index.ContentVersion;
+import co.caio.casserole.index.DatabaseId;
+import co.caio.casserole.index.Facet;
+import co.caio.cerberus.Util;
+import co.caio.cerberus.search.Indexer;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+
+class ContentVersionTest {
+
+  @Test
+  void rebuildingTheSameIndexChangesTheVersion() throws IOException {
+    var sdb = Files.createTempDirectory("content-version-sdb-");
+    DatabaseId.write(sdb);
+
+    var first = buildIndex();
+    var second = buildIndex();
+
+    assertEquals(ContentVersion.of("code", first, sdb), ContentVersion.of("code", first, sdb));
+    assertNotEquals(ContentVersion.of("code", first, sdb), ContentVersion.of("code", second, sdb));
+    assertNotEquals(ContentVersion.of("code", first, sdb), ContentVersion.of("new", first, sdb));
+  }
+
+  @Test
+  void rebuildingTheDatabaseChangesTheVersion() throws IOException {
+    var sdb = Files.createTempDirectory("content-version-sdb-");
+    var lucene = buildIndex();
+
+    DatabaseId.write(sdb);
+    var before = ContentVersion.of("code", lucene, sdb);
+    DatabaseId.write(sdb);
+
+    assertNotEquals(before, ContentVersion.of("code", lucene, sdb));
+  }
+
+  @Test
+  void unreadableContentIsFatal() throws IOException {
+    var sdb = Files.createTempDirectory("content-version-sdb-");
+    var lucene = buildIndex();
+
+    // No database id
+    assertThrows(RuntimeException.class, () -> ContentVersion.of("code", lucene, sdb));
+
+    DatabaseId.write(sdb);
+    var empty = Files.createTempDirectory("content-version-lucene-");
+    assertThrows(RuntimeException.class, () -> ContentVersion.of("code", empty, sdb));
+    assertThrows(
+        RuntimeException.class, () -> ContentVersion.of("code", empty.resolve("missing"), sdb));
+  }
+
+  private static Path buildIndex() throws IOException {
+    var dataDir = Files.createTempDirectory("content-version-lucene-");
+    var indexer = Indexer.Factory.open(dataDir, new Facet().getCategoryExtractor());
+    Util.getSampleRecipes()
+        .forEach(
+            recipe -> {
+              try {
+                indexer.addRecipe(recipe);
+              } catch (IOException wrapped) {
+                throw new RuntimeException(wrapped);
+              }
+            });
+    indexer.commit();
+    indexer.close();
+    return dataDir;
+  }
+}
@@ -0,0 +1,100 @@
+package co.caio.casserole;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import co.caio.casserole.ext.DataBufferOutput;
+import co.caio.tablier.model.ErrorInfo;
+import co.caio.tablier.model.SiteInfo;
+import co.caio.tablier.view.Error;
+import com.fizzed.rocker.RockerModel;
+import com.fizzed.rocker.runtime.StringBuilderOutput;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+
+class DataBufferOutputTest {
+
+  // Large enough to spread over a few 8KiB chunks, with writes both
+  // smaller and bigger than a chunk. Models render only once, hence
+  // a new one every time
+  private static RockerModel model() {
+    return Error.template(
+        new SiteInfo.Builder().title("x".repeat(5_000)).build(),
+        new ErrorInfo.Builder().title("y".repeat(5_000)).subtitle("z".repeat(20_000)).build());
+  }
+
+  @Test
+  void rendersTheSameBytesAcrossChunks() {
+    var factory = new TrackingFactory(Integer.MAX_VALUE);
+    var output = DataBufferOutput.render(model(), factory);
+
+    assertTrue(output.getBuffers().size() > 1);
+
+    var rendered = new ByteArrayOutputStream();
+    for (DataBuffer buffer : output.getBuffers()) {
+      var bytes = new byte[buffer.readableByteCount()];
+      buffer.read(bytes);
+      rendered.writeBytes(bytes);
+    }
+
+    var expected =
+        model().render(StringBuilderOutput.FACTORY).toString().getBytes(StandardCharsets.UTF_8);
+    assertEquals(expected.length, output.getByteLength());
+    assertArrayEquals(expected, rendered.toByteArray());
+
+    output.toFlux().collectList().block().forEach(buffer -> assertEquals(1, refCnt(buffer)));
+  }
+
+  @Test
+  void buffersAreReleasedWhenRenderingFails() {
+    var factory = new TrackingFactory(2);
+
+    assertThrows(IllegalStateException.class, () -> DataBufferOutput.render(model(), factory));
+
+    assertEquals(2, factory.allocated.size());
+    factory.allocated.forEach(buffer -> assertEquals(0, refCnt(buffer)));
+  }
+
+  @Test
+  void buffersNotTakenAreReleasedOnCancel() {
+    var factory = new TrackingFactory(Integer.MAX_VALUE);
+    var output = DataBufferOutput.render(model(), factory);
+    var buffers = List.copyOf(output.getBuffers());
+
+    var taken = output.toFlux().take(1).collectList().block();
+
+    assertEquals(List.of(buffers.get(0)), taken);
+    assertEquals(1, refCnt(buffers.get(0)));
+    buffers.stream().skip(1).forEach(buffer -> assertEquals(0, refCnt(buffer)));
+  }
+
+  private static int refCnt(DataBuffer buffer) {
+    return ((NettyDataBuffer) buffer).getNativeBuffer().refCnt();
+  }
+
+  private static class TrackingFactory extends NettyDataBufferFactory {
+    private final int maxAllocations;
+    private final List<DataBuffer> allocated = new ArrayList<>();
+
+    TrackingFactory(int maxAllocations) {
+      super(UnpooledByteBufAllocator.DEFAULT);
+      this.maxAllocations = maxAllocations;
+    }
+
+    @Override
+    public NettyDataBuffer allocateBuffer(int initialCapacity) {
+      if (allocated.size() == maxAllocations) {
+        throw new IllegalStateException("Out of buffers");
+      }
+      var buffer = super.allocateBuffer(initialCapacity);
+      allocated.add(buffer);
+      return buffer;
+    }
+  }
+}
@@ -0,0 +1,26 @@
+package co.caio.casserole;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import co.caio.casserole.index.DatabaseId;
+import java.io.IOException;
+import java.nio.file.Files;
+import org.junit.jupiter.api.Test;
+
+class DatabaseIdTest {
+
+  @Test
+  void writeAndRead() throws IOException {
+    var dir = Files.createTempDirectory("database-id-");
+    var id = DatabaseId.write(dir);
+
+    assertEquals(id, DatabaseId.read(dir));
+    assertNotEquals(id, DatabaseId.write(dir));
+  }
+
+  @Test
+  void missingIdIsAnError() throws IOException {
+    var dir = Files.createTempDirectory("database-id-");
+    assertThrows(RuntimeException.class, () -> DatabaseId.read(dir));
+  }
+}
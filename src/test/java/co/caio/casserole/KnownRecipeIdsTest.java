@@ -0,0 +1,45 @@
+package co.caio.casserole;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import co.caio.casserole.index.KnownRecipeIds;
+import java.io.IOException;
+import java.nio.file.Files;
+import org.junit.jupiter.api.Test;
+
+class KnownRecipeIdsTest {
+
+  @Test
+  void onlyKnownIdsMightExist() {
+    var known = KnownRecipeIds.of(new long[] {42, 1, 7});
+
+    assertEquals(3, known.size());
+    assertTrue(known.mightExist(1));
+    assertTrue(known.mightExist(7));
+    assertTrue(known.mightExist(42));
+    assertFalse(known.mightExist(0));
+    assertFalse(known.mightExist(8));
+    assertFalse(known.mightExist(-42));
+  }
+
+  @Test
+  void writeAndLoad() throws IOException {
+    var dir = Files.createTempDirectory("known-ids-");
+    KnownRecipeIds.write(dir, new long[] {3, 2, 1});
+
+    var loaded = KnownRecipeIds.load(dir);
+    assertEquals(3, loaded.size());
+    assertTrue(loaded.mightExist(2));
+    assertFalse(loaded.mightExist(4));
+    assertArrayEquals(new long[] {1, 2, 3}, loaded.ids().toArray());
+  }
+
+  @Test
+  void missingFileDisablesFiltering() throws IOException {
+    var loaded = KnownRecipeIds.load(Files.createTempDirectory("known-ids-"));
+
+    assertSame(KnownRecipeIds.ANY, loaded);
+    assertTrue(loaded.mightExist(123));
+    assertThrows(IllegalStateException.class, loaded::ids);
+  }
+}
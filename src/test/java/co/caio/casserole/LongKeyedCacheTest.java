@@ -0,0 +1,118 @@
+package co.caio.casserole;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import co.caio.casserole.ext.LongKeyedCache;
+import org.junit.jupiter.api.Test;
+
+class LongKeyedCacheTest {
+
+  @Test
+  void validation() {
+    assertThrows(IllegalArgumentException.class, () -> new LongKeyedCache<String>(0));
+    assertThrows(IllegalArgumentException.class, () -> new LongKeyedCache<String>(-1));
+  }
+
+  @Test
+  void capacityIsWhatWasRequested() {
+    assertEquals(1, new LongKeyedCache<String>(1).capacity());
+    assertEquals(8, new LongKeyedCache<String>(8).capacity());
+    assertEquals(15, new LongKeyedCache<String>(15).capacity());
+  }
+
+  @Test
+  void putAndGet() {
+    var cache = new LongKeyedCache<String>(16);
+
+    assertNull(cache.getIfPresent(42));
+    cache.put(42, "answer");
+    assertEquals("answer", cache.getIfPresent(42));
+    cache.put(42, "replaced");
+    assertEquals("replaced", cache.getIfPresent(42));
+
+    assertEquals(1, cache.size());
+    assertEquals(2, cache.putCount());
+    assertEquals(2, cache.hitCount());
+    assertEquals(1, cache.missCount());
+    assertEquals(0, cache.evictionCount());
+  }
+
+  @Test
+  void sizeIsBounded() {
+    var cache = new LongKeyedCache<Long>(10);
+
+    for (long i = 0; i < 100; i++) {
+      cache.put(i, i);
+    }
+
+    assertEquals(10, cache.size());
+    assertEquals(90, cache.evictionCount());
+  }
+
+  @Test
+  void scansDontEvictHotKeys() {
+    var cache = new LongKeyedCache<Long>(100);
+
+    for (long i = 0; i < 100; i++) {
+      cache.put(i, i);
+    }
+
+    for (int i = 0; i < 50; i++) {
+      assertEquals(42L, (long) cache.getIfPresent(42));
+    }
+
+    // A crawler walking through every id, each seen exactly once,
+    // while people keep looking at the hot one
+    for (long i = 1_000; i < 100_000; i++) {
+      cache.put(i, i);
+      if (i % 100 == 0) {
+        assertEquals(42L, (long) cache.getIfPresent(42));
+      }
+    }
+
+    assertEquals(42L, (long) cache.getIfPresent(42));
+    assertEquals(100, cache.size());
+  }
+
+  @Test
+  void popularNewKeysAreAdmitted() {
+    var cache = new LongKeyedCache<Long>(10);
+
+    for (long i = 0; i < 10; i++) {
+      cache.put(i, i);
+    }
+
+    // What callers do: look it up, load it and store it
+    for (int i = 0; i < 5 && cache.getIfPresent(42) == null; i++) {
+      cache.put(42, 42L);
+    }
+
+    assertEquals(42L, (long) cache.getIfPresent(42));
+    assertEquals(10, cache.size());
+  }
+
+  @Test
+  void evictionsKeepEveryEntryReachable() {
+    var cache = new LongKeyedCache<Long>(64);
+
+    // Ever more popular keys, so that every put evicts something
+    for (long i = 0; i < 10_000; i++) {
+      for (int j = 0; j < 1 + i / 1000; j++) {
+        cache.getIfPresent(i);
+      }
+      cache.put(i, i);
+    }
+
+    var found = 0;
+    for (long i = 0; i < 10_000; i++) {
+      var value = cache.getIfPresent(i);
+      if (value != null) {
+        assertEquals(i, (long) value);
+        found++;
+      }
+    }
+
+    assertEquals(cache.size(), found);
+    assertEquals(64, found);
+  }
+}
@@ -0,0 +1,111 @@
+package co.caio.casserole;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import co.caio.casserole.component.SearchParameterParser;
+import co.caio.casserole.index.Facet;
+import co.caio.casserole.index.Facet.Category;
+import co.caio.casserole.index.MaterializedResults;
+import co.caio.cerberus.Util;
+import co.caio.cerberus.search.Indexer;
+import co.caio.cerberus.search.Searcher;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class MaterializedResultsTest {
+
+  private static final SearchParameterParser parser = new SearchParameterParser(10, 30);
+
+  private static final Searcher searcher;
+  private static final MaterializedResults materialized;
+
+  static {
+    try {
+      var dataDir = Files.createTempDirectory("materialized-");
+      var indexer = Indexer.Factory.open(dataDir, new Facet().getCategoryExtractor());
+
+      Util.getSampleRecipes()
+          .forEach(
+              recipe -> {
+                try {
+                  indexer.addRecipe(recipe);
+                } catch (IOException wrapped) {
+                  throw new RuntimeException(wrapped);
+                }
+              });
+      indexer.commit();
+
+      searcher = Searcher.Factory.open(dataDir, new TermQueryRewritingPolicy(200_000));
+      materialized = MaterializedResults.build(searcher, 10);
+    } catch (IOException wrapped) {
+      throw new RuntimeException(wrapped);
+    }
+  }
+
+  @Test
+  void browsingIsMaterialized() {
+    var query = parser.buildQuery(Map.of("q", ""));
+    var result = materialized.get(query).orElseThrow();
+    var wanted = searcher.search(query);
+
+    assertEquals(wanted.totalHits(), result.totalHits());
+    assertEquals(wanted.recipeIds(), result.recipeIds());
+    assertFalse(result.facets().isEmpty());
+  }
+
+  @Test
+  void facetCountsMatchSelectingTheOption() {
+    var counts = materialized.get(parser.buildQuery(Map.of())).orElseThrow().facets().get("diet");
+
+    Category.DIET
+        .getOptions()
+        .forEach(
+            opt -> {
+              var selected = parser.buildQuery(Map.of("diet", opt.getIndexKey()));
+              assertEquals(
+                  searcher.search(selected).totalHits(),
+                  counts.children().getOrDefault(opt.getIndexKey(), 0L).longValue());
+            });
+  }
+
+  @Test
+  void everySortOrderIsMaterialized() {
+    Category.SORT
+        .getOptions()
+        .forEach(
+            opt -> {
+              var query = parser.buildQuery(Map.of("sort", opt.getIndexKey()));
+              assertEquals(
+                  searcher.search(query).recipeIds(),
+                  materialized.get(query).orElseThrow().recipeIds());
+            });
+  }
+
+  @Test
+  void everySingleOptionFilterIsMaterialized() {
+    for (Category category : Category.values()) {
+      category
+          .getOptions()
+          .forEach(
+              opt -> {
+                var query = parser.buildQuery(Map.of(category.getIndexKey(), opt.getIndexKey()));
+                assertTrue(materialized.get(query).isPresent(), query.toString());
+              });
+    }
+  }
+
+  @Test
+  void otherQueriesAreNotMaterialized() {
+    assertTrue(materialized.get(parser.buildQuery(Map.of("q", "egg"))).isEmpty());
+    assertTrue(materialized.get(parser.buildQuery(Map.of("page", "2"))).isEmpty());
+    assertTrue(
+        materialized.get(parser.buildQuery(Map.of("ni", "0,5", "tt", "0,15"))).isEmpty());
+  }
+
+  @Test
+  void emptyHasNothing() {
+    assertEquals(0, MaterializedResults.EMPTY.size());
+  }
+}
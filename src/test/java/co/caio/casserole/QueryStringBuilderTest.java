@@ -0,0 +1,108 @@
+package co.caio.casserole;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import co.caio.casserole.ext.QueryStringBuilder;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.util.UriComponentsBuilder;
+
+class QueryStringBuilderTest {
+
+  private static final List<String> SAMPLE_URIS =
+      List.of(
+          "/search",
+          "/search?q=",
+          "/search?q=egg",
+          "/search?q=egg+bacon&page=2",
+          "/search?page=2&q=egg%20bacon&ni=0,5",
+          "/search?q=egg&diet=vegan&diet=keto&sort=time",
+          "/search?flag&q=egg");
+
+  @Test
+  void behavesLikeUriComponentsBuilder() {
+    for (String uri : SAMPLE_URIS) {
+      var builder = QueryStringBuilder.fromUriString(uri);
+
+      assertEquals(reference(uri).build().toUriString(), builder.toUriString());
+
+      for (String name : List.of("q", "page", "diet", "unknown")) {
+        assertEquals(
+            reference(uri).replaceQueryParam(name).build().toUriString(),
+            builder.without(name).toUriString());
+        assertEquals(
+            reference(uri).replaceQueryParam(name, "42").build().toUriString(),
+            builder.with(name, "42").toUriString());
+
+        var splicer = builder.splicer(name);
+        assertEquals(builder.with(name, "42").toUriString(), splicer.with("42"));
+        assertEquals(builder.without(name).toUriString(), splicer.without());
+      }
+
+      assertEquals(
+          reference(uri).build().getQueryParams().toSingleValueMap(),
+          builder.toSingleValueMap());
+    }
+  }
+
+  @Test
+  void fromUriKeepsRawValues() {
+    var builder = QueryStringBuilder.fromUri(URI.create("/search?q=egg%20bacon&ni=0,5"));
+    assertEquals("/search?q=egg%20bacon&ni=0,5", builder.toUriString());
+    assertEquals(Map.of("q", "egg%20bacon", "ni", "0,5"), builder.toSingleValueMap());
+  }
+
+  @Test
+  void linksOnlyKeepThePathAndQuery() {
+    var uri = URI.create("http://localhost:8080/search?q=egg&page=2");
+    var builder = QueryStringBuilder.fromUri(uri);
+
+    // UriComponentsBuilder.fromUri would link to the absolute url
+    assertEquals("/search?q=egg&page=2", builder.toUriString());
+    assertEquals("/search?q=egg&page=3", builder.with("page", "3").toUriString());
+    assertEquals("/search?q=egg", builder.splicer("page").without());
+    assertEquals("/search?page=2&q=bacon", builder.splicer("q").with("bacon"));
+  }
+
+  @Test
+  void onlyWithDropsEverythingElse() {
+    var builder = QueryStringBuilder.fromUriString("/search?q=egg&ni=0,5&page=3");
+    assertEquals("/search?q=bacon", builder.onlyWith("q", "bacon").toUriString());
+  }
+
+  @Test
+  void canonicalStringIgnoresParameterOrder() {
+    var canonical = "/search?diet=keto&diet=vegan&ni=0,5&q=egg";
+
+    assertEquals(
+        canonical,
+        QueryStringBuilder.fromUriString("/search?q=egg&diet=keto&ni=0,5&diet=vegan")
+            .toCanonicalString());
+    assertEquals(
+        canonical,
+        QueryStringBuilder.fromUriString("/search?ni=0,5&diet=keto&q=egg&diet=vegan")
+            .toCanonicalString());
+    assertEquals(
+        "/search?q=egg", QueryStringBuilder.fromUriString("/search?q=egg").toCanonicalString());
+    assertEquals("/search", QueryStringBuilder.fromUriString("/search").toCanonicalString());
+  }
+
+  @Test
+  void canonicalBuildersLinkTheSameRegardlessOfOrder() {
+    var first = QueryStringBuilder.fromUriString("/search?q=egg&diet=keto&ni=0,5").canonical();
+    var second = QueryStringBuilder.fromUriString("/search?ni=0,5&diet=keto&q=egg").canonical();
+
+    assertEquals(first.toUriString(), second.toUriString());
+    assertEquals(first.splicer("page").with("2"), second.splicer("page").with("2"));
+    assertEquals(first.splicer("diet").with("vegan"), second.splicer("diet").with("vegan"));
+    assertEquals(
+        List.copyOf(first.toSingleValueMap().keySet()),
+        List.copyOf(second.toSingleValueMap().keySet()));
+  }
+
+  private static UriComponentsBuilder reference(String uri) {
+    return UriComponentsBuilder.fromUriString(uri);
+  }
+}
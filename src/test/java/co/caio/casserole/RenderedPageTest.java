@@ -0,0 +1,52 @@
+package co.caio.casserole;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import co.caio.casserole.ext.RenderedPage;
+import co.caio.tablier.model.ErrorInfo;
+import co.caio.tablier.model.SiteInfo;
+import co.caio.tablier.view.Error;
+import com.fizzed.rocker.RockerModel;
+import com.fizzed.rocker.runtime.StringBuilderOutput;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+
+class RenderedPageTest {
+
+  @Test
+  void acceptsGzip() {
+    assertTrue(RenderedPage.acceptsGzip(List.of("gzip")));
+    assertTrue(RenderedPage.acceptsGzip(List.of("deflate, gzip;q=1.0, *;q=0.5")));
+    assertTrue(RenderedPage.acceptsGzip(List.of("br", "GZIP; q=0.8")));
+
+    assertFalse(RenderedPage.acceptsGzip(List.of()));
+    assertFalse(RenderedPage.acceptsGzip(List.of("identity")));
+    assertFalse(RenderedPage.acceptsGzip(List.of("br, gzip;q=0")));
+    assertFalse(RenderedPage.acceptsGzip(List.of("gzip; q=0.00")));
+  }
+
+  @Test
+  void keepsBothRepresentations() throws IOException {
+    var page = RenderedPage.of(model());
+
+    var expected =
+        model().render(StringBuilderOutput.FACTORY).toString().getBytes(StandardCharsets.UTF_8);
+    assertArrayEquals(expected, page.getIdentity());
+
+    try (var in = new GZIPInputStream(new ByteArrayInputStream(page.getGzip()))) {
+      assertArrayEquals(expected, in.readAllBytes());
+    }
+
+    assertEquals(page.getIdentity().length + page.getGzip().length, page.weight());
+  }
+
+  private static RockerModel model() {
+    return Error.template(
+        new SiteInfo.Builder().title("Rendered").build(),
+        new ErrorInfo.Builder().title("Page").subtitle("x".repeat(10_000)).build());
+  }
+}
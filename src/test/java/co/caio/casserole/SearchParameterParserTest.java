@@ -17,7 +17,8 @@ import org.junit.jupiter.api.Test;
 class SearchParameterParserTest {
 
   private static final int pageSize = 10;
-  private static final SearchParameterParser parser = new SearchParameterParser(pageSize);
+  private static final int maxPage = 30;
+  private static final SearchParameterParser parser = new SearchParameterParser(pageSize, maxPage);
 
   @Test
   void buildQuery() {
@@ -47,8 +48,10 @@ class SearchParameterParserTest {
     assertEquals(
         parser.buildQuery(input), builder.carbohydrateContent(RangedSpec.of(0, 30)).build());
 
+    // Every category with counts on the sidebar is selected now,
+    // so there's no need to compute facets anymore
     input.put("diet", "keto");
-    assertEquals(parser.buildQuery(input), builder.diet("keto").build());
+    assertEquals(parser.buildQuery(input), builder.diet("keto").maxFacets(0).build());
 
     input.put("diet", "keto:0.75");
     assertEquals(parser.buildQuery(input), builder.diet("keto", 0.75f).build());
@@ -76,6 +79,26 @@ class SearchParameterParserTest {
         () -> parser.buildQuery(Map.of("q", "unused", "page", "31")));
   }
 
+  @Test
+  void maxPageIsConfigurable() {
+    var smallerParser = new SearchParameterParser(pageSize, 5);
+    assertDoesNotThrow(() -> smallerParser.buildQuery(Map.of("q", "unused", "page", "5")));
+    assertThrows(
+        SearchParameterException.class,
+        () -> smallerParser.buildQuery(Map.of("q", "unused", "page", "6")));
+  }
+
+  @Test
+  void facetsAreOnlyComputedWhenDisplayed() {
+    assertEquals(5, parser.buildQuery(Map.of("q", "oil")).maxFacets());
+    assertEquals(5, parser.buildQuery(Map.of("q", "oil", "diet", "keto")).maxFacets());
+    assertEquals(
+        5, parser.buildQuery(Map.of("diet", "keto", "ni", "5", "tt", "10")).maxFacets());
+    assertEquals(
+        0,
+        parser.buildQuery(Map.of("diet", "keto", "ni", "5", "tt", "10", "n_k", "200")).maxFacets());
+  }
+
   @Test
   void unknownParameterThrows() {
     assertThrows(
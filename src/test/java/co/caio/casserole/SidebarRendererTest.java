@@ -4,6 +4,7 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import co.caio.casserole.component.SearchParameterParser;
 import co.caio.casserole.component.SidebarRenderer;
+import co.caio.casserole.ext.QueryStringBuilder;
 import co.caio.casserole.index.Facet.Category;
 import co.caio.casserole.index.Facet.CategoryRange;
 import co.caio.cerberus.model.FacetData;
@@ -27,12 +28,12 @@ import org.springframework.web.util.UriComponentsBuilder;
 class SidebarRendererTest {
 
   private static final SidebarRenderer SIDEBAR_RENDERER = new SidebarRenderer();
-  private static final SearchParameterParser paramParser = new SearchParameterParser(20);
-  private UriComponentsBuilder uriBuilder;
+  private static final SearchParameterParser paramParser = new SearchParameterParser(20, 30);
+  private QueryStringBuilder uriBuilder;
 
   @BeforeEach
   void setup() {
-    uriBuilder = UriComponentsBuilder.fromUriString("/test");
+    uriBuilder = QueryStringBuilder.fromUriString("/test");
   }
 
   @Test
@@ -312,7 +313,7 @@ class SidebarRendererTest {
   @Test
   void originalParametersArePreserved() {
     var query = new SearchQuery.Builder().fulltext("ignored").build();
-    var ub = UriComponentsBuilder.fromUriString("/test?must=preserve");
+    var ub = QueryStringBuilder.fromUriString("/test?must=preserve");
     var sidebar = SIDEBAR_RENDERER.render(query, ub);
 
     sidebar
@@ -330,7 +331,7 @@ class SidebarRendererTest {
   @Test
   void sameFilterCategoryGetsReplacedDifferentCategoryGetsAppended() {
     var query = new SearchQuery.Builder().fulltext("ignored").build();
-    var ub = UriComponentsBuilder.fromUriString("/test?ni=10,42");
+    var ub = QueryStringBuilder.fromUriString("/test?ni=10,42");
     var sidebar = SIDEBAR_RENDERER.render(query, ub);
 
     sidebar
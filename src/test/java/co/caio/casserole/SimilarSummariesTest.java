@@ -0,0 +1,88 @@
+package co.caio.casserole;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import co.caio.casserole.index.SimilarSummaries;
+import co.caio.casserole.index.SimilarSummaries.Summary;
+import co.caio.cerberus.Util;
+import co.caio.cerberus.db.HashMapRecipeMetadataDatabase;
+import co.caio.cerberus.db.RecipeMetadata;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class SimilarSummariesTest {
+
+  @Test
+  void writeAndLoad() throws IOException {
+    var recipes =
+        Util.getSampleRecipes().map(RecipeMetadata::fromRecipe).collect(Collectors.toList());
+    var db = new HashMapRecipeMetadataDatabase();
+    db.saveAll(recipes);
+
+    var dir = Files.createTempDirectory("similar-summaries-");
+    SimilarSummaries.write(
+        dir, db, recipes.stream().mapToLong(RecipeMetadata::getRecipeId).toArray());
+
+    var loaded = SimilarSummaries.load(dir);
+
+    assertEquals(recipes.size(), loaded.size());
+
+    for (RecipeMetadata recipe : recipes) {
+      var wanted =
+          recipe
+              .getSimilarRecipeIds()
+              .stream()
+              .map(db::findById)
+              .flatMap(Optional::stream)
+              .collect(Collectors.toList());
+      var found = loaded.find(recipe.getRecipeId()).orElseThrow();
+
+      assertEquals(
+          wanted.stream().map(RecipeMetadata::getRecipeId).collect(Collectors.toList()),
+          found.stream().map(Summary::getRecipeId).collect(Collectors.toList()));
+      assertEquals(
+          wanted.stream().map(RecipeMetadata::getName).collect(Collectors.toList()),
+          found.stream().map(Summary::getName).collect(Collectors.toList()));
+      assertEquals(
+          wanted.stream().map(RecipeMetadata::getSlug).collect(Collectors.toList()),
+          found.stream().map(Summary::getSlug).collect(Collectors.toList()));
+    }
+
+    assertTrue(loaded.find(-1).isEmpty());
+  }
+
+  @Test
+  void interruptedReadsDontBreakLaterOnes() throws IOException {
+    var recipes =
+        Util.getSampleRecipes().map(RecipeMetadata::fromRecipe).collect(Collectors.toList());
+    var db = new HashMapRecipeMetadataDatabase();
+    db.saveAll(recipes);
+
+    var dir = Files.createTempDirectory("similar-summaries-");
+    SimilarSummaries.write(
+        dir, db, recipes.stream().mapToLong(RecipeMetadata::getRecipeId).toArray());
+    var loaded = SimilarSummaries.load(dir);
+    var recipeId = recipes.get(0).getRecipeId();
+
+    // What cancelling a task on the metadata scheduler does
+    Thread.currentThread().interrupt();
+    try {
+      assertTrue(loaded.find(recipeId).isPresent());
+    } finally {
+      Thread.interrupted();
+    }
+
+    assertTrue(loaded.find(recipeId).isPresent());
+  }
+
+  @Test
+  void missingFileFindsNothing() throws IOException {
+    var loaded = SimilarSummaries.load(Files.createTempDirectory("similar-summaries-"));
+
+    assertSame(SimilarSummaries.NONE, loaded);
+    assertTrue(loaded.find(123).isEmpty());
+  }
+}
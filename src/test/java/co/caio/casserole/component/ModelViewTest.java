@@ -3,6 +3,10 @@ package co.caio.casserole.component;
 import static org.junit.jupiter.api.Assertions.*;
 
 import co.caio.casserole.component.ModelView.OverPaginationError;
+import co.caio.casserole.component.ModelView.RecipeLookup;
+import co.caio.casserole.ext.LongKeyedCache;
+import co.caio.casserole.ext.QueryStringBuilder;
+import co.caio.casserole.index.SimilarSummaries;
 import co.caio.casserole.service.MetadataService;
 import co.caio.cerberus.Util;
 import co.caio.cerberus.db.HashMapRecipeMetadataDatabase;
@@ -11,32 +15,40 @@ import co.caio.cerberus.model.SearchQuery;
 import co.caio.cerberus.model.SearchQuery.Builder;
 import co.caio.cerberus.model.SearchQuery.RangedSpec;
 import co.caio.cerberus.model.SearchResult;
+import co.caio.tablier.model.RecipeInfo.SimilarInfo;
 import com.fizzed.rocker.RockerModel;
 import com.fizzed.rocker.runtime.StringBuilderOutput;
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.scheduler.Schedulers;
 
 class ModelViewTest {
 
   private static final int pageSize = 2; // just to simplify pagination testing
+  private static final int maxPage = 30;
   private static final ModelView modelView;
   private static final MetadataService METADATA_SERVICE;
   private static final CircuitBreaker breaker = CircuitBreaker.ofDefaults("mvt");
 
-  private UriComponentsBuilder uriBuilder;
+  private QueryStringBuilder uriBuilder;
 
   static {
     var db = new HashMapRecipeMetadataDatabase();
     db.saveAll(
         Util.getSampleRecipes().map(RecipeMetadata::fromRecipe).collect(Collectors.toList()));
-    METADATA_SERVICE = new MetadataService(db);
-    modelView = new ModelView(pageSize, breaker);
+    METADATA_SERVICE = new MetadataService(db, new LongKeyedCache<>(16), Schedulers.immediate());
+    modelView =
+        new ModelView(
+            pageSize, maxPage, breaker, SimilarSummaries.NONE, new LongKeyedCache<>(16));
   }
 
   private Document parseOutput(RockerModel rockerModel) {
@@ -46,7 +58,7 @@ class ModelViewTest {
 
   @BeforeEach
   void setup() {
-    uriBuilder = UriComponentsBuilder.fromUriString("/renderer");
+    uriBuilder = QueryStringBuilder.fromUriString("/renderer");
     breaker.reset();
   }
 
@@ -184,6 +196,29 @@ class ModelViewTest {
     assertTrue(doc.selectFirst("nav.pagination a.pagination-next").attr("href").isEmpty());
   }
 
+  @Test
+  void maxPageShouldNotHaveNextPage() {
+    var lastAllowedPage =
+        new SearchQuery.Builder().fulltext("unused").offset(pageSize * (maxPage - 1)).build();
+    var resultWithMorePages =
+        new SearchResult.Builder()
+            .totalHits(pageSize * maxPage + 1)
+            .addRecipe(1)
+            .addRecipe(2)
+            .build();
+
+    var doc =
+        parseOutput(
+            modelView.renderSearch(
+                lastAllowedPage, resultWithMorePages, METADATA_SERVICE, uriBuilder));
+
+    assertTrue(
+        doc.selectFirst("nav.pagination a.pagination-previous")
+            .attr("href")
+            .contains("page=" + (maxPage - 1)));
+    assertTrue(doc.selectFirst("nav.pagination a.pagination-next").attr("href").isEmpty());
+  }
+
   @Test
   void sidebarLinksDropThePageParameter() {
 
@@ -258,6 +293,187 @@ class ModelViewTest {
             });
   }
 
+  @Test
+  void recipeLookupResolvesEachIdOnce() {
+    var numCalls = new AtomicInteger();
+    var counting =
+        new MetadataService(null, null, null) {
+          @Override
+          public Optional<RecipeMetadata> findById(long recipeId) {
+            numCalls.incrementAndGet();
+            return METADATA_SERVICE.findById(recipeId);
+          }
+        };
+
+    var recipeId = Util.getSampleRecipes().findFirst().orElseThrow().recipeId();
+    var lookup = new RecipeLookup(counting, SimilarSummaries.NONE, new LongKeyedCache<>(16));
+
+    assertTrue(lookup.findById(recipeId).isPresent());
+    assertTrue(lookup.findById(recipeId).isPresent());
+    assertTrue(lookup.findById(-1).isEmpty());
+    assertTrue(lookup.findById(-1).isEmpty());
+
+    assertEquals(2, numCalls.get());
+  }
+
+  @Test
+  void recipeLookupBatchesUnseenIds() {
+    var numBatches = new AtomicInteger();
+    var counting =
+        new MetadataService(null, null, null) {
+          @Override
+          public List<RecipeMetadata> findByIds(long[] recipeIds) {
+            numBatches.incrementAndGet();
+            return METADATA_SERVICE.findByIds(recipeIds);
+          }
+        };
+
+    var ids =
+        Util.getSampleRecipes().limit(3).map(r -> r.recipeId()).collect(Collectors.toList());
+    var lookup = new RecipeLookup(counting, SimilarSummaries.NONE, new LongKeyedCache<>(16));
+
+    var found = lookup.findByIds(ids);
+    assertEquals(ids, found.stream().map(RecipeMetadata::getRecipeId).collect(Collectors.toList()));
+    // Everything has been seen already
+    assertEquals(found, lookup.findByIds(ids));
+
+    assertEquals(1, numBatches.get());
+  }
+
+  @Test
+  void similarRecipesAreOnlyResolvedOnce() {
+    var numBatches = new AtomicInteger();
+    var counting =
+        new MetadataService(null, null, null) {
+          @Override
+          public List<RecipeMetadata> findByIds(long[] recipeIds) {
+            numBatches.incrementAndGet();
+            return METADATA_SERVICE.findByIds(recipeIds);
+          }
+        };
+
+    var cache = new LongKeyedCache<List<SimilarInfo>>(16);
+
+    Util.getSampleRecipes()
+        .map(r -> METADATA_SERVICE.findById(r.recipeId()))
+        .flatMap(Optional::stream)
+        .limit(5)
+        .forEach(
+            recipe -> {
+              var similar =
+                  new RecipeLookup(counting, SimilarSummaries.NONE, cache).findSimilar(recipe);
+              var numBatchesBefore = numBatches.get();
+
+              // Even when rendering a different page
+              assertEquals(
+                  similar,
+                  new RecipeLookup(counting, SimilarSummaries.NONE, cache).findSimilar(recipe));
+              assertEquals(numBatchesBefore, numBatches.get());
+            });
+  }
+
+  @Test
+  void resolvedPagesRenderWithoutTheDatabase() {
+    var numCalls = new AtomicInteger();
+    var counting =
+        new MetadataService(null, null, null) {
+          @Override
+          public Optional<RecipeMetadata> findById(long recipeId) {
+            numCalls.incrementAndGet();
+            return METADATA_SERVICE.findById(recipeId);
+          }
+
+          @Override
+          public List<RecipeMetadata> findByIds(long[] recipeIds) {
+            numCalls.incrementAndGet();
+            return METADATA_SERVICE.findByIds(recipeIds);
+          }
+        };
+
+    var recipes =
+        Util.getSampleRecipes()
+            .limit(2)
+            .map(r -> METADATA_SERVICE.findById(r.recipeId()).orElseThrow())
+            .collect(Collectors.toList());
+    var result =
+        new SearchResult.Builder()
+            .totalHits(3)
+            .addRecipe(recipes.get(0).getRecipeId())
+            .addRecipe(-1)
+            .addRecipe(recipes.get(1).getRecipeId())
+            .build();
+    var unusedQuery = new SearchQuery.Builder().fulltext("unused").build();
+
+    var lookup = modelView.resolveSearch(result, counting, recipes);
+    var doc = parseOutput(modelView.renderSearch(unusedQuery, result, lookup, uriBuilder));
+
+    assertTrue(doc.text().contains(recipes.get(0).getName()));
+    assertTrue(doc.text().contains(recipes.get(1).getName()));
+    assertEquals(0, numCalls.get());
+
+    // Similar recipes get resolved before rendering as well
+    var recipe = recipes.get(0);
+    lookup = modelView.resolveSingleRecipe(recipe, counting);
+    var numCallsBefore = numCalls.get();
+
+    doc = parseOutput(modelView.renderSingleRecipe(recipe, lookup));
+    assertTrue(doc.title().startsWith(recipe.getName()));
+    assertEquals(numCallsBefore, numCalls.get());
+  }
+
+  @Test
+  void storedSimilarSummariesSkipTheDatabase() throws IOException {
+    var db = new HashMapRecipeMetadataDatabase();
+    db.saveAll(
+        Util.getSampleRecipes().map(RecipeMetadata::fromRecipe).collect(Collectors.toList()));
+
+    var dir = Files.createTempDirectory("similar-summaries-");
+    SimilarSummaries.write(
+        dir, db, Util.getSampleRecipes().mapToLong(r -> r.recipeId()).toArray());
+
+    var failing =
+        new MetadataService(null, null, null) {
+          @Override
+          public List<RecipeMetadata> findByIds(long[] recipeIds) {
+            throw new AssertionError("Should not hit the database");
+          }
+        };
+
+    var summaries = SimilarSummaries.load(dir);
+
+    Util.getSampleRecipes()
+        .map(r -> METADATA_SERVICE.findById(r.recipeId()))
+        .flatMap(Optional::stream)
+        .forEach(
+            recipe -> {
+              var resolved =
+                  new RecipeLookup(
+                          METADATA_SERVICE, SimilarSummaries.NONE, new LongKeyedCache<>(1))
+                      .findSimilar(recipe);
+              var stored =
+                  new RecipeLookup(failing, summaries, new LongKeyedCache<>(1))
+                      .findSimilar(recipe);
+
+              assertEquals(
+                  resolved.stream().map(SimilarInfo::infoUrl).collect(Collectors.toList()),
+                  stored.stream().map(SimilarInfo::infoUrl).collect(Collectors.toList()));
+              assertEquals(
+                  resolved.stream().map(SimilarInfo::name).collect(Collectors.toList()),
+                  stored.stream().map(SimilarInfo::name).collect(Collectors.toList()));
+            });
+  }
+
+  @Test
+  void infoUrlIsBuiltFromSlugAndId() {
+    Util.getSampleRecipes()
+        .map(RecipeMetadata::fromRecipe)
+        .forEach(
+            recipe ->
+                assertEquals(
+                    String.format("/recipe/%s/%d", recipe.getSlug(), recipe.getRecipeId()),
+                    ModelView.buildInfoUrl(recipe)));
+  }
+
   @Test
   void regressionInfoUrisAreNotPoisonedByLogic() {
     var query = new SearchQuery.Builder().fulltext("unused").build();
@@ -0,0 +1,24 @@
+package co.caio.casserole.component;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class RequestHandlerTest {
+
+  @Test
+  void parseRecipeId() {
+    assertEquals(0, RequestHandler.parseRecipeId("0"));
+    assertEquals(42, RequestHandler.parseRecipeId("42"));
+    assertEquals(42, RequestHandler.parseRecipeId("0042"));
+    assertEquals(Long.MAX_VALUE, RequestHandler.parseRecipeId(Long.toString(Long.MAX_VALUE)));
+
+    var invalid =
+        List.of("", "abc", "-1", "+1", "1.0", "12a", " 1", "9223372036854775808", "1".repeat(30));
+
+    for (String value : invalid) {
+      assertEquals(-1, RequestHandler.parseRecipeId(value), value);
+    }
+  }
+}
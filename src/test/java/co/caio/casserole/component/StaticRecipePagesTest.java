@@ -0,0 +1,128 @@
+package co.caio.casserole.component;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import co.caio.casserole.index.SimilarSummaries;
+import co.caio.cerberus.Util;
+import co.caio.cerberus.db.HashMapRecipeMetadataDatabase;
+import co.caio.cerberus.db.RecipeMetadata;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import org.jsoup.Jsoup;
+import org.junit.jupiter.api.Test;
+
+class StaticRecipePagesTest {
+
+  @Test
+  void disabledFindsNothing() {
+    var recipe = Util.getSampleRecipes().findFirst().orElseThrow();
+    assertTrue(StaticRecipePages.DISABLED.find(recipe.slug(), recipe.recipeId()).isEmpty());
+  }
+
+  @Test
+  void missingIndexDisablesPages() throws IOException {
+    var pages = StaticRecipePages.load(Files.createTempDirectory("static-pages-"), "db");
+    assertSame(StaticRecipePages.DISABLED, pages);
+  }
+
+  @Test
+  void generatedPagesCanBeFound() throws IOException {
+    var recipes =
+        Util.getSampleRecipes().map(RecipeMetadata::fromRecipe).collect(Collectors.toList());
+    var db = new HashMapRecipeMetadataDatabase();
+    db.saveAll(recipes);
+
+    var directory = Files.createTempDirectory("static-pages-").resolve("pages");
+    var generation =
+        StaticRecipePages.generate(directory, db, "db", SimilarSummaries.NONE, recipes.stream());
+
+    var pages = StaticRecipePages.load(directory, "db");
+    assertEquals(generation, pages.getGeneration());
+    assertEquals(recipes.size(), pages.size());
+
+    for (RecipeMetadata recipe : recipes) {
+      var page = pages.find(recipe.getSlug(), recipe.getRecipeId()).orElseThrow();
+
+      assertEquals(Files.size(page.getPath()), page.getContentLength());
+
+      try (var in = new GZIPInputStream(Files.newInputStream(page.getPath()))) {
+        var doc = Jsoup.parse(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        assertTrue(doc.title().startsWith(recipe.getName()));
+      }
+
+      // Wrong slugs are not found
+      assertTrue(pages.find(recipe.getSlug() + "wrong", recipe.getRecipeId()).isEmpty());
+      assertTrue(pages.find("../" + recipe.getSlug(), recipe.getRecipeId()).isEmpty());
+    }
+  }
+
+  @Test
+  void everyGenerationIsDifferent() throws IOException {
+    var recipes =
+        Util.getSampleRecipes().map(RecipeMetadata::fromRecipe).collect(Collectors.toList());
+    var db = new HashMapRecipeMetadataDatabase();
+    db.saveAll(recipes);
+
+    var first =
+        StaticRecipePages.generate(
+            Files.createTempDirectory("static-pages-"),
+            db,
+            "db",
+            SimilarSummaries.NONE,
+            recipes.stream());
+    var second =
+        StaticRecipePages.generate(
+            Files.createTempDirectory("static-pages-"),
+            db,
+            "db",
+            SimilarSummaries.NONE,
+            recipes.stream());
+
+    assertNotEquals(first, second);
+  }
+
+  @Test
+  void pagesFromAnotherDatabaseAreIgnored() throws IOException {
+    var recipe = sampleRecipe();
+    var db = new HashMapRecipeMetadataDatabase();
+    db.saveAll(List.of(recipe));
+
+    var directory = Files.createTempDirectory("static-pages-");
+    StaticRecipePages.generate(directory, db, "db", SimilarSummaries.NONE, Stream.of(recipe));
+
+    assertSame(StaticRecipePages.DISABLED, StaticRecipePages.load(directory, "another-db"));
+  }
+
+  @Test
+  void findingNeverTouchesTheFilesystem() throws IOException {
+    var recipe = sampleRecipe();
+    var db = new HashMapRecipeMetadataDatabase();
+    db.saveAll(List.of(recipe));
+
+    var directory = Files.createTempDirectory("static-pages-");
+    StaticRecipePages.generate(directory, db, "db", SimilarSummaries.NONE, Stream.of(recipe));
+    var pages = StaticRecipePages.load(directory, "db");
+
+    var page = pages.find(recipe.getSlug(), recipe.getRecipeId()).orElseThrow();
+    assertTrue(page.isServable());
+
+    // What the index says exists is found even if deleted since, but
+    // it's no longer servable: requests get the rendered page instead
+    Files.delete(page.getPath());
+    page = pages.find(recipe.getSlug(), recipe.getRecipeId()).orElseThrow();
+    assertFalse(page.isServable());
+
+    // Same for a page that doesn't match what was written
+    Files.write(page.getPath(), new byte[] {1, 2, 3});
+    assertFalse(page.isServable());
+  }
+
+  private static RecipeMetadata sampleRecipe() {
+    return Util.getSampleRecipes().map(RecipeMetadata::fromRecipe).findFirst().orElseThrow();
+  }
+}
@@ -0,0 +1,102 @@
+package co.caio.casserole.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import co.caio.casserole.ext.LongKeyedCache;
+import co.caio.cerberus.Util;
+import co.caio.cerberus.db.HashMapRecipeMetadataDatabase;
+import co.caio.cerberus.db.RecipeMetadata;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import reactor.core.scheduler.Schedulers;
+
+class MetadataServiceTest {
+
+  private static final MetadataService METADATA_SERVICE;
+  private static final List<Long> SAMPLE_IDS;
+
+  static {
+    var db = new HashMapRecipeMetadataDatabase();
+    db.saveAll(
+        Util.getSampleRecipes().map(RecipeMetadata::fromRecipe).collect(Collectors.toList()));
+    METADATA_SERVICE = new MetadataService(db, new LongKeyedCache<>(1024), Schedulers.immediate());
+    SAMPLE_IDS = Util.getSampleRecipes().map(r -> r.recipeId()).collect(Collectors.toList());
+  }
+
+  private List<Long> findByIds(long... ids) {
+    return METADATA_SERVICE
+        .findByIds(ids)
+        .stream()
+        .map(RecipeMetadata::getRecipeId)
+        .collect(Collectors.toList());
+  }
+
+  @Test
+  void findByIdsKeepsRequestOrder() {
+    var first = SAMPLE_IDS.get(0);
+    var second = SAMPLE_IDS.get(1);
+    var third = SAMPLE_IDS.get(2);
+
+    assertEquals(List.of(third, first, second), findByIds(third, first, second));
+    assertEquals(List.of(second, third, first), findByIds(second, third, first));
+  }
+
+  @Test
+  void findByIdsSkipsMissing() {
+    var first = SAMPLE_IDS.get(0);
+    assertEquals(List.of(first), findByIds(-1, first, -2));
+    assertEquals(List.of(), findByIds(-1));
+    assertEquals(List.of(), findByIds());
+  }
+
+  @Test
+  void foundRecipesAreCached() {
+    var db = new HashMapRecipeMetadataDatabase();
+    db.saveAll(
+        Util.getSampleRecipes().map(RecipeMetadata::fromRecipe).collect(Collectors.toList()));
+    var cache = new LongKeyedCache<RecipeMetadata>(1024);
+    var service = new MetadataService(db, cache, Schedulers.immediate());
+
+    var first = SAMPLE_IDS.get(0);
+    var second = SAMPLE_IDS.get(1);
+
+    assertTrue(service.findById(first).isPresent());
+    assertEquals(1, cache.missCount());
+    assertTrue(service.findById(first).isPresent());
+    assertEquals(1, cache.hitCount());
+
+    // Batches only go to the database for what's not cached
+    assertEquals(2, service.findByIds(new long[] {second, first}).size());
+    assertEquals(2, cache.hitCount());
+    assertEquals(2, cache.size());
+
+    // Missing recipes are not cached
+    assertTrue(service.findById(-1).isEmpty());
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  void fetchById() {
+    var first = SAMPLE_IDS.get(0);
+    assertEquals(first, METADATA_SERVICE.fetchById(first).block().getRecipeId());
+    assertNull(METADATA_SERVICE.fetchById(-1).block());
+  }
+
+  @Test
+  void fetchByIds() {
+    var first = SAMPLE_IDS.get(0);
+    var second = SAMPLE_IDS.get(1);
+    var found = METADATA_SERVICE.fetchByIds(List.of(second, -1L, first)).block();
+    assertEquals(
+        List.of(second, first),
+        found.stream().map(RecipeMetadata::getRecipeId).collect(Collectors.toList()));
+  }
+
+  @Test
+  void findByIdsHandlesDuplicates() {
+    var first = SAMPLE_IDS.get(0);
+    var second = SAMPLE_IDS.get(1);
+    assertEquals(List.of(first, second, first), findByIds(first, second, first));
+  }
+}